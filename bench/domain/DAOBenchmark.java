@@ -0,0 +1,166 @@
+//  DAOBenchmark.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, benchmarks for the DAO hot paths against an embedded Derby database
+ * 2026-10-18 : Seeds through DatasetGenerator
+ * 2026-10-18 : Prints the QueryStats report when it is enabled
+ * 2026-10-18 : Resets ShiftTimeline and EventIndex after seeding each database
+ * 2026-10-18 : Resets RosterStore after seeding each database
+ * 2026-10-18 : Added a 90-day ConflictDetector.check() benchmark
+ * 2026-10-18 : Added a one-year StaffingOutlook.compute() benchmark
+ * 2026-10-18 : Added a PersonDAO.findPeople() typeahead benchmark
+ * 2026-10-18 : Added PersonDAO.getPeople(afterId, limit) page and streamPeople() benchmarks
+ * 2026-10-18 : Resets WeekGridCache after seeding; added a WeekGridCache.get() filter-toggle benchmark
+ * 2026-10-18 : Resets everything with Caches.refresh() after seeding
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import util.Benchmark;
+import util.DBBuild;
+import util.DBConnectionPool;
+import util.DatasetGenerator;
+import util.QueryStats;
+
+/**
+ * <p>
+ * Measures the DAO calls behind the shift view against an in-memory
+ * embedded Derby database built by <code>DBBuild</code> and filled by
+ * <code>DatasetGenerator</code>, once per roster size.  Prints ops/s, p50
+ * and p99 for each call.</p>
+ *
+ * <p>
+ * Run with <code>ant bench</code>.  Roster sizes can be given as arguments
+ * (default <code>100 1000 10000</code>); <code>-Dbench.warmup</code> and
+ * <code>-Dbench.measure</code> set the warmup and measurement time per
+ * benchmark in milliseconds.  With
+ * <code>-Dscheduleapp.queryStats=true</code> the <code>QueryStats</code>
+ * report is printed after the results.</p>
+ *
+ * <p>
+ * Lives in <code>domain</code> so it can reach the package-private
+ * <code>ObjectIdDAO</code>.</p>
+ */
+public final class DAOBenchmark {
+
+  private static final String USER = "Owner";
+  private static final String PASSWORD = "password";
+  private static final long SEED = 42;
+
+  private DAOBenchmark() { }
+
+  public static void main(String[] args) throws SQLException {
+    Logger.getLogger("").setLevel(Level.WARNING);
+
+    int[] sizes = {100, 1_000, 10_000};
+    if (args.length > 0) {
+      sizes = new int[args.length];
+      for (int i = 0; i < args.length; i++) {
+        sizes[i] = Integer.parseInt(args[i]);
+      }
+    }
+
+    Benchmark bench = new Benchmark(Long.getLong("bench.warmup", 2_000),
+                                    Long.getLong("bench.measure", 5_000));
+    List<Benchmark.Result> results = new ArrayList<>();
+
+    for (int size : sizes) {
+      String url = "jdbc:derby:memory:bench" + size;
+      DBConnectionPool.configure(url + ";create=true", USER, PASSWORD);
+      DBBuild.testDatabase();
+      new DatasetGenerator().people(size).seed(SEED).generate();
+      Caches.refresh();
+
+      results.addAll(runAll(bench, size));
+
+      DBConnectionPool.getInstance().shutdown();
+      drop(url);
+    }
+
+    System.out.println(Benchmark.Result.HEADER);
+    for (Benchmark.Result result : results) {
+      System.out.println(result);
+    }
+
+    if (QueryStats.getInstance().isEnabled()) {
+      System.out.println();
+      QueryStats.getInstance().dumpReport(System.out);
+    }
+  }
+
+  private static List<Benchmark.Result> runAll(Benchmark bench, int size) {
+    List<Benchmark.Result> results = new ArrayList<>();
+    String params = "people=" + size;
+    LocalDate today = LocalDate.now();
+    LocalDate weekStart = today.with(DayOfWeek.MONDAY);
+    Random random = new Random(SEED);
+
+    PersonDAO personDAO = new PersonDAO();
+    ShiftDateDAO shiftDateDAO = new ShiftDateDAO();
+    PersonEventDAO personEventDAO = new PersonEventDAO();
+    ObjectIdDAO objectIdDAO = new ObjectIdDAO();
+    ConflictDetector conflictDetector = new ConflictDetector();
+    StaffingOutlook staffingOutlook = new StaffingOutlook();
+
+    List<Person> people = personDAO.getPeopleArrayListByShift(0, 0, today);
+
+    results.add(bench.run("PersonDAO.getPeopleArrayListByShift", params,
+        () -> personDAO.getPeopleArrayListByShift(0, 0, today)));
+    results.add(bench.run("PersonDAO.getPeopleArrayListByShift(2,1)", params,
+        () -> personDAO.getPeopleArrayListByShift(2, 1, today)));
+    results.add(bench.run("ShiftDateDAO.getWeek", params,
+        () -> shiftDateDAO.getWeek(1 + random.nextInt(size), weekStart)));
+    results.add(bench.run("PersonEventDAO.getWeekEvents", params,
+        () -> personEventDAO.getWeekEvents(
+            people.get(random.nextInt(people.size())), weekStart)));
+    results.add(bench.run("PersonDAO.findPeople(typeahead)", params, () -> {
+      String name = people.get(random.nextInt(people.size())).getLastName();
+      return personDAO.findPeople(
+          name.substring(0, Math.min(name.length(), 1 + random.nextInt(4))),
+          20);
+    }));
+    results.add(bench.run("PersonDAO.getPeople(page of 100)", params,
+        () -> personDAO.getPeople(random.nextInt(size), 100)));
+    results.add(bench.run("PersonDAO.streamPeople", params, () -> {
+      try (Stream<Person> stream = personDAO.streamPeople()) {
+        return stream.count();
+      }
+    }));
+    results.add(bench.run("WeekGridCache.get(toggle)", params,
+        () -> WeekGridCache.get(random.nextInt(3), random.nextInt(3), today)));
+    results.add(bench.run("ObjectIdDAO.getNextObjectId", params,
+        () -> objectIdDAO.getNextObjectId(ObjectIdDAO.PERSON_EVENT)));
+    results.add(bench.run("ConflictDetector.check(90 days)", params,
+        () -> conflictDetector.check(0, today, today.plusDays(89))));
+    results.add(bench.run("StaffingOutlook.compute(1 year)", params,
+        () -> staffingOutlook.compute(today, today.plusYears(1))));
+
+    return results;
+  }
+
+  private static void drop(String url) {
+    try {
+      DriverManager.getConnection(url + ";drop=true").close();
+    } catch (SQLException se) {
+      //  Derby reports a successful drop as SQLState 08006
+      if (!"08006".equals(se.getSQLState())) {
+        se.printStackTrace(System.err);
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+//  Benchmark.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, a small warmup/measure harness for the DAO benchmarks
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package util;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * Times one operation: runs it for a warmup period, then for a measurement
+ * period, recording the latency of every call.  Results are throughput
+ * (ops/s) and latency percentiles.</p>
+ *
+ * <p>
+ * Return values are folded into a volatile sink so the JIT cannot drop the
+ * call as dead code.</p>
+ */
+public final class Benchmark {
+
+  private static volatile int sink;
+
+  private final long warmupMillis;
+  private final long measureMillis;
+
+  public Benchmark(long warmupMillis, long measureMillis) {
+    this.warmupMillis = warmupMillis;
+    this.measureMillis = measureMillis;
+  }
+
+  public Result run(String name, String params, Supplier<?> operation) {
+    long end = System.nanoTime() + warmupMillis * 1_000_000L;
+    while (System.nanoTime() < end) {
+      consume(operation.get());
+    }
+
+    long[] samples = new long[1024];
+    int count = 0;
+    long start = System.nanoTime();
+    end = start + measureMillis * 1_000_000L;
+    long now = start;
+
+    while (now < end) {
+      long before = now;
+      consume(operation.get());
+      now = System.nanoTime();
+
+      if (count == samples.length) {
+        samples = Arrays.copyOf(samples, count * 2);
+      }
+      samples[count++] = now - before;
+    }
+
+    return new Result(name, params, Arrays.copyOf(samples, count),
+                      now - start);
+  }
+
+  private static void consume(Object value) {
+    sink += (value == null) ? 0 : System.identityHashCode(value);
+  }
+
+  /**
+   * <p>
+   * Measured latencies for one benchmark, plus the formatting used by the
+   * report.</p>
+   */
+  public static final class Result {
+    public static final String HEADER = String.format(Locale.ROOT,
+        "%-40s %-12s %10s %10s %10s %10s",
+        "Benchmark", "Params", "ops", "ops/s", "p50 ms", "p99 ms");
+
+    private final String name;
+    private final String params;
+    private final long[] sortedNanos;
+    private final long elapsedNanos;
+
+    private Result(String name, String params, long[] nanos,
+                   long elapsedNanos) {
+      Arrays.sort(nanos);
+      this.name = name;
+      this.params = params;
+      this.sortedNanos = nanos;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getOperations() {
+      return sortedNanos.length;
+    }
+
+    public double getOpsPerSecond() {
+      return (elapsedNanos == 0) ? 0
+          : sortedNanos.length * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return latency in milliseconds at that percentile
+     */
+    public double getPercentileMillis(double percentile) {
+      if (sortedNanos.length == 0) {
+        return 0;
+      }
+      int index = (int) Math.ceil(percentile / 100 * sortedNanos.length) - 1;
+      index = Math.max(0, Math.min(sortedNanos.length - 1, index));
+      return sortedNanos[index] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT,
+          "%-40s %-12s %10d %10.1f %10.3f %10.3f",
+          name, params, getOperations(), getOpsPerSecond(),
+          getPercentileMillis(50), getPercentileMillis(99));
+    }
+  }
+
+}
@@ -0,0 +1,461 @@
+//  DatasetGenerator.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, a seeded generator of roster, shift history and event data for load testing
+ * 2026-10-18 : Corrected the eventDensity() Javadoc, which left out the other event types
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package util;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Fills the tables built by <code>DBBuild</code> with synthetic people,
+ * shift history and events.  Output depends only on the settings, the seed
+ * and the <code>asOf</code> date, so a benchmark or bug report can be
+ * reproduced by quoting them.  Each person draws from their own
+ * <code>Random</code>, seeded from the generator seed and their position,
+ * so adding people does not change the ones already generated.</p>
+ *
+ * <p>
+ * Rows go in through batched inserts, committed every
+ * <code>COMMIT_ROWS</code> rows.  IDs start at the current
+ * <code>ObjectIDs</code> values, which are moved past the new rows, so the
+ * generator can add to a database that is already in use.</p>
+ *
+ * <p>
+ * Usage: <code>DatasetGenerator url people [years [seed [asOf]]]</code>,
+ * or <code>ant generate -Dgenerate.args="..."</code>.</p>
+ */
+public final class DatasetGenerator {
+
+  private static final Logger logger =
+      Logger.getLogger(DatasetGenerator.class.getName());
+
+  private static final int BATCH_ROWS = 1_000;
+  private static final int COMMIT_ROWS = 50_000;
+
+  private static final String[] FIRST_NAMES = {
+    "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael",
+    "Linda", "William", "Elizabeth", "David", "Barbara", "Richard", "Susan",
+    "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen", "Daniel",
+    "Nancy", "Matthew", "Lisa", "Anthony", "Betty", "Mark", "Margaret",
+    "Donald", "Sandra", "Steven", "Ashley", "Paul", "Kimberly", "Andrew",
+    "Emily", "Joshua", "Donna", "Kenneth", "Michelle"
+  };
+  private static final String[] LAST_NAMES = {
+    "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller",
+    "Davis", "Rodriguez", "Martinez", "Hernandez", "Lopez", "Gonzalez",
+    "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+    "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez", "Clark",
+    "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King",
+    "Wright", "Scott", "Torres", "Nguyen", "Hill", "Flores"
+  };
+
+  private int people = 1_000;
+  private int years = 2;
+  private int workcenters = 6;
+  private int shiftChangeDays = 90;
+  private double leavePerYear = 3;
+  private double tdyPerYear = 1;
+  private double otherEventsPerYear = 6;
+  private long seed = 42;
+  private LocalDate asOf = LocalDate.now();
+
+  public DatasetGenerator people(int people) {
+    this.people = people;
+    return this;
+  }
+
+  /** Years of shift and event history before <code>asOf</code>. */
+  public DatasetGenerator years(int years) {
+    this.years = years;
+    return this;
+  }
+
+  /**
+   * Workcenters to spread people over; rows beyond the ones
+   * <code>DBBuild</code> creates are added as <code>WC7</code>,
+   * <code>WC8</code>, ...
+   */
+  public DatasetGenerator workcenters(int workcenters) {
+    this.workcenters = workcenters;
+    return this;
+  }
+
+  /** Average number of days between one person's shift changes. */
+  public DatasetGenerator shiftChangeDays(int shiftChangeDays) {
+    this.shiftChangeDays = shiftChangeDays;
+    return this;
+  }
+
+  /**
+   * Average events per person per year: Leave (3 to 14 days), TDY (5 to
+   * 30 days), and one-day events of the other types, chosen at random.
+   */
+  public DatasetGenerator eventDensity(double leavePerYear, double tdyPerYear,
+                                       double otherEventsPerYear) {
+    this.leavePerYear = leavePerYear;
+    this.tdyPerYear = tdyPerYear;
+    this.otherEventsPerYear = otherEventsPerYear;
+    return this;
+  }
+
+  public DatasetGenerator seed(long seed) {
+    this.seed = seed;
+    return this;
+  }
+
+  /** The date history runs up to (events also run a month past it). */
+  public DatasetGenerator asOf(LocalDate asOf) {
+    this.asOf = asOf;
+    return this;
+  }
+
+  /**
+   * <p>
+   * Generates the data set into the database the pool points at.</p>
+   *
+   * @return the number of rows inserted into each table
+   * @throws SQLException if the inserts fail; rows from the current chunk
+   *                      are rolled back, earlier chunks stay
+   */
+  public Counts generate() throws SQLException {
+    Counts counts = new Counts();
+    long started = System.nanoTime();
+
+    try (Connection conn = DBConnectionPool.getPoolConnection()) {
+      conn.setAutoCommit(false);
+      try {
+        addWorkcenters(conn, counts);
+        insertRows(conn, counts);
+        conn.commit();
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      }
+    }
+
+    logger.info(String.format(
+        "Generated %d people, %d shift changes and %d events in %d ms",
+        counts.people, counts.shiftDates, counts.events,
+        (System.nanoTime() - started) / 1_000_000));
+    return counts;
+  }
+
+  private void addWorkcenters(Connection conn, Counts counts)
+      throws SQLException {
+    int[] existing = ids(conn, GET_WORKCENTER_IDS);
+    int nextId = (existing.length == 0) ? 1 : existing[existing.length - 1] + 1;
+
+    try (PreparedStatement insertStmt =
+             conn.prepareStatement(INSERT_WORKCENTER)) {
+      for (int i = existing.length; i < workcenters; i++) {
+        int id = nextId++;
+        insertStmt.setInt(1, id);
+        insertStmt.setString(2, "WC" + id);
+        insertStmt.addBatch();
+        counts.workcenters++;
+      }
+      insertStmt.executeBatch();
+    }
+  }
+
+  private void insertRows(Connection conn, Counts counts) throws SQLException {
+    int[] rankIds = ids(conn, GET_RANK_IDS);
+    int[] shiftIds = ids(conn, GET_SHIFT_IDS);
+    int[] skillIds = ids(conn, GET_SKILL_IDS);
+    int[] workcenterIds = Arrays.copyOf(ids(conn, GET_WORKCENTER_IDS),
+                                        workcenters);
+    if (rankIds.length == 0 || shiftIds.length == 0 || skillIds.length == 0
+        || workcenterIds.length == 0) {
+      throw new SQLException("Lookup tables are empty; build the database "
+                             + "with DBBuild first.");
+    }
+    int leaveType = eventTypeId(conn, "Leave");
+    int tdyType = eventTypeId(conn, "TDY");
+    List<Integer> otherTypes = new ArrayList<>();
+    for (int id : ids(conn, GET_EVENT_TYPE_IDS)) {
+      if (id != leaveType && id != tdyType) {
+        otherTypes.add(id);
+      }
+    }
+
+    int personId = nextObjectId(conn, "Person");
+    int shiftDateId = nextObjectId(conn, "Shift_Date");
+    int eventId = nextObjectId(conn, "Person_Event");
+
+    LocalDate first = asOf.minusYears(years);
+    int historyDays = (int) (asOf.toEpochDay() - first.toEpochDay());
+    int eventDays = historyDays + 30;
+    double eventYears = eventDays / 365.25;
+
+    int pending = 0;
+    int uncommitted = 0;
+
+    try (PreparedStatement personStmt = conn.prepareStatement(INSERT_PERSON);
+         PreparedStatement shiftStmt = conn.prepareStatement(INSERT_SHIFT_DATE);
+         PreparedStatement eventStmt = conn.prepareStatement(INSERT_EVENT)) {
+
+      for (int n = 0; n < people; n++, personId++) {
+        Random random = new Random(seed * 1_000_003L + n);
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String lastName = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+        int rankId = rankIds[random.nextInt(rankIds.length)];
+        int workcenterId = workcenterIds[random.nextInt(workcenterIds.length)];
+        int skillId = skillIds[random.nextInt(skillIds.length)];
+
+        //  First row puts the person on their starting shift; later changes
+        //  always move to a different shift
+        int shift = random.nextInt(shiftIds.length);
+        int day = 0;
+        while (true) {
+          shiftStmt.setInt(1, shiftDateId++);
+          shiftStmt.setInt(2, personId);
+          shiftStmt.setDate(3, Date.valueOf(first.plusDays(day)));
+          shiftStmt.setInt(4, shiftIds[shift]);
+          shiftStmt.addBatch();
+          counts.shiftDates++;
+          pending++;
+
+          day += 1 + random.nextInt(2 * shiftChangeDays);
+          if (day > historyDays || shiftIds.length < 2) {
+            break;
+          }
+          shift = (shift + 1 + random.nextInt(shiftIds.length - 1))
+                  % shiftIds.length;
+        }
+
+        //  person.shift_id holds the current shift
+        personStmt.setInt(1, personId);
+        personStmt.setString(2, firstName);
+        personStmt.setString(3, lastName);
+        personStmt.setInt(4, rankId);
+        personStmt.setInt(5, workcenterId);
+        personStmt.setInt(6, shiftIds[shift]);
+        personStmt.setInt(7, skillId);
+        personStmt.addBatch();
+        counts.people++;
+        pending++;
+
+        int firstEventId = eventId;
+
+        eventId = addEvents(eventStmt, random, personId, eventId, first,
+                            eventDays, poisson(random, leavePerYear * eventYears),
+                            leaveType, 3, 14, "Leave", counts);
+        eventId = addEvents(eventStmt, random, personId, eventId, first,
+                            eventDays, poisson(random, tdyPerYear * eventYears),
+                            tdyType, 5, 30, "TDY", counts);
+        for (int i = poisson(random, otherEventsPerYear * eventYears);
+             i > 0; i--) {
+          int type = otherTypes.get(random.nextInt(otherTypes.size()));
+          eventId = addEvents(eventStmt, random, personId, eventId, first,
+                              eventDays, 1, type, 1, 1, "Event", counts);
+        }
+        pending += eventId - firstEventId;
+
+        if (pending >= BATCH_ROWS || n == people - 1) {
+          personStmt.executeBatch();
+          shiftStmt.executeBatch();
+          eventStmt.executeBatch();
+          uncommitted += pending;
+          pending = 0;
+        }
+        if (uncommitted >= COMMIT_ROWS) {
+          //  Keep ObjectIDs past every committed row
+          setObjectId(conn, "Person", personId + 1);
+          setObjectId(conn, "Shift_Date", shiftDateId);
+          setObjectId(conn, "Person_Event", eventId);
+          conn.commit();
+          uncommitted = 0;
+        }
+      }
+    }
+
+    setObjectId(conn, "Person", personId);
+    setObjectId(conn, "Shift_Date", shiftDateId);
+    setObjectId(conn, "Person_Event", eventId);
+  }
+
+  private static int addEvents(PreparedStatement eventStmt, Random random,
+                               int personId, int eventId, LocalDate first,
+                               int eventDays, int howMany, int typeId,
+                               int minDays, int maxDays, String description,
+                               Counts counts) throws SQLException {
+    for (int i = 0; i < howMany; i++) {
+      LocalDate start = first.plusDays(random.nextInt(eventDays));
+      LocalDate end = start.plusDays(
+          minDays - 1 + random.nextInt(maxDays - minDays + 1));
+      boolean allDay = minDays > 1;
+
+      eventStmt.setInt(1, eventId);
+      eventStmt.setDate(2, Date.valueOf(start));
+      eventStmt.setTime(3, allDay ? START_OF_DAY
+          : Time.valueOf(LocalTime.of(7 + random.nextInt(8), 0)));
+      eventStmt.setDate(4, Date.valueOf(end));
+      eventStmt.setTime(5, allDay ? END_OF_DAY
+          : Time.valueOf(LocalTime.of(15 + random.nextInt(2), 30)));
+      eventStmt.setString(6, description + " " + eventId);
+      eventStmt.setInt(7, typeId);
+      eventStmt.setInt(8, personId);
+      eventStmt.addBatch();
+
+      eventId++;
+      counts.events++;
+    }
+    return eventId;
+  }
+
+  /** Knuth's method; fine for the small means used here. */
+  private static int poisson(Random random, double mean) {
+    double limit = Math.exp(-mean);
+    double product = random.nextDouble();
+    int k = 0;
+    while (product > limit) {
+      product *= random.nextDouble();
+      k++;
+    }
+    return k;
+  }
+
+  private static int[] ids(Connection conn, String statement)
+      throws SQLException {
+    List<Integer> ids = new ArrayList<>();
+    try (PreparedStatement stmt = conn.prepareStatement(statement);
+         ResultSet rset = stmt.executeQuery()) {
+      while (rset.next()) {
+        ids.add(rset.getInt(1));
+      }
+    }
+    return ids.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static int eventTypeId(Connection conn, String name)
+      throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(GET_EVENT_TYPE_ID)) {
+      stmt.setString(1, name);
+      try (ResultSet rset = stmt.executeQuery()) {
+        if (!rset.next()) {
+          throw new SQLException("No person_event_type named " + name);
+        }
+        return rset.getInt(1);
+      }
+    }
+  }
+
+  private static int nextObjectId(Connection conn, String className)
+      throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(GET_OBJECT_ID)) {
+      stmt.setString(1, className);
+      try (ResultSet rset = stmt.executeQuery()) {
+        if (!rset.next()) {
+          throw new SQLException("No ObjectID entry for class type: "
+                                 + className);
+        }
+        return rset.getInt(1);
+      }
+    }
+  }
+
+  private static void setObjectId(Connection conn, String className, int next)
+      throws SQLException {
+    try (PreparedStatement stmt = conn.prepareStatement(SET_OBJECT_ID)) {
+      stmt.setInt(1, next);
+      stmt.setString(2, className);
+      stmt.executeUpdate();
+    }
+  }
+
+  /**
+   * <p>
+   * Rows inserted by one <code>generate()</code> call.</p>
+   */
+  public static final class Counts {
+    public int workcenters;
+    public int people;
+    public int shiftDates;
+    public int events;
+
+    @Override
+    public String toString() {
+      return String.format("%d people, %d shift changes, %d events, "
+                           + "%d new workcenters",
+                           people, shiftDates, events, workcenters);
+    }
+  }
+
+  public static void main(String[] args) throws SQLException {
+    if (args.length < 2) {
+      System.err.println(
+          "Usage: DatasetGenerator url people [years [seed [asOf]]]");
+      System.exit(1);
+    }
+
+    DatasetGenerator generator = new DatasetGenerator()
+        .people(Integer.parseInt(args[1]));
+    if (args.length > 2) {
+      generator.years(Integer.parseInt(args[2]));
+    }
+    if (args.length > 3) {
+      generator.seed(Long.parseLong(args[3]));
+    }
+    if (args.length > 4) {
+      generator.asOf(LocalDate.parse(args[4]));
+    }
+
+    DBConnectionPool.configure(args[0], "Owner", "password");
+    DBBuild.testDatabase();
+
+    long started = System.nanoTime();
+    Counts counts = generator.generate();
+    System.out.println(counts + " in "
+                       + (System.nanoTime() - started) / 1_000_000 + " ms");
+    DBConnectionPool.getInstance().shutdown();
+  }
+
+  private static final Time START_OF_DAY = Time.valueOf("00:00:00");
+  private static final Time END_OF_DAY = Time.valueOf("23:59:00");
+
+  private static final String GET_RANK_IDS = "SELECT id FROM rank ORDER BY id";
+  private static final String GET_SHIFT_IDS = "SELECT id FROM shift ORDER BY id";
+  private static final String GET_SKILL_IDS = "SELECT id FROM skill ORDER BY id";
+  private static final String GET_WORKCENTER_IDS
+      = "SELECT id FROM workcenter ORDER BY id";
+  private static final String GET_EVENT_TYPE_ID
+      = "SELECT id FROM person_event_type WHERE name = ?";
+  private static final String GET_EVENT_TYPE_IDS
+      = "SELECT id FROM person_event_type ORDER BY id";
+  private static final String GET_OBJECT_ID
+      = "SELECT IDNumber FROM ObjectIDs WHERE className = ?";
+  private static final String SET_OBJECT_ID
+      = "UPDATE ObjectIDs SET IDNumber = ? WHERE className = ?";
+  private static final String INSERT_WORKCENTER
+      = "INSERT INTO workcenter (id, name) VALUES (?, ?)";
+  private static final String INSERT_PERSON
+      = "INSERT INTO person (id, first_name, last_name, rank_id, "
+      + "workcenter_id, shift_id, skill_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+  private static final String INSERT_SHIFT_DATE
+      = "INSERT INTO shift_date (id, person_id, change_date, shift_id) "
+      + "VALUES (?, ?, ?, ?)";
+  private static final String INSERT_EVENT
+      = "INSERT INTO person_event (id, start_date, start_time, end_date, "
+      + "end_time, description, person_event_type_id, person_id) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+}
@@ -10,6 +10,7 @@ import javafx.scene.control.Button;
 import javafx.scene.layout.Pane;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import domain.LookupCache;
 import util.DBBuild;
 import window.MainStage;
 
@@ -40,6 +41,7 @@ public class TestDriver extends Application {
     logger.info("[TestDriver.start()] Testing database...");
 
     DBBuild.testDatabase();
+    LookupCache.reload();
     Stage stage = new Stage();
     stage.setTitle("Schedule Application");
     Pane layout = new VBox(30);
@@ -0,0 +1,63 @@
+//  AbsenceTypes.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, the event types that take a person off the schedule, shared by ConflictDetector and StaffingOutlook
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import domain.LookupCache.Lookup;
+
+/**
+ * <p>
+ * Which <code>PERSON_EVENT_TYPE</code>s make a person absent: leave and
+ * TDY.  Other events (appointments, training, ...) are noted on the
+ * schedule but leave the person available for their shift.  Both
+ * <code>ConflictDetector</code> and <code>StaffingOutlook</code> count
+ * people through this class, so they agree on who is there.</p>
+ */
+final class AbsenceTypes {
+
+  //  Event type names that take a person off the schedule
+  private static final String[] NAMES = {"Leave", "TDY"};
+
+  private final int[] typeIds;
+
+  private AbsenceTypes(int[] typeIds) {
+    this.typeIds = typeIds;
+  }
+
+  /**
+   * <p>
+   * Resolves the type names against <code>LookupCache</code>; a name not
+   * in the table is skipped.</p>
+   */
+  static AbsenceTypes load() {
+    LookupCache.Table table = LookupCache.get(Lookup.PERSON_EVENT_TYPE);
+    List<Integer> types = new ArrayList<>();
+    for (String name : NAMES) {
+      Integer id = (table == null) ? null : table.getId(name);
+      if (id != null) {
+        types.add(id);
+      }
+    }
+    return new AbsenceTypes(
+        types.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  boolean isAbsence(int typeId) {
+    for (int type : typeIds) {
+      if (type == typeId) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
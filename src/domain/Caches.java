@@ -0,0 +1,55 @@
+//  Caches.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, refresh() drops every in-memory copy of the database so other clients' changes are seen
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * The in-memory copies of the database, as one unit:
+ * <code>LookupCache</code>, <code>RosterStore</code>,
+ * <code>ShiftTimeline</code>, <code>EventIndex</code> and what is built on
+ * them (<code>FilterIndex</code>, <code>SearchIndex</code> and
+ * <code>WeekGridCache</code>).</p>
+ *
+ * <p>
+ * The DAOs keep these current with this client's own commits.  Changes
+ * other clients make to a shared (network mode) database are not seen
+ * until <code>refresh()</code> is called; <code>MainStage</code> calls it
+ * from its 'Refresh' button and every few minutes.</p>
+ */
+public final class Caches {
+
+  private static final Logger logger =
+      Logger.getLogger(Caches.class.getName());
+
+  private Caches() { }
+
+  /**
+   * <p>
+   * Re-reads the lookup tables now, and drops everything else so that it
+   * is read again from the database on next use.</p>
+   */
+  public static void refresh() {
+    long started = System.nanoTime();
+    RosterStore.invalidate();
+    ShiftTimeline.invalidate();
+    EventIndex.invalidate();
+    SearchIndex.invalidate();
+    FilterIndex.invalidate();
+    LookupCache.reload();
+    //  Last, so a week built from the old indexes in the meantime is not
+    //  kept
+    WeekGridCache.invalidate();
+    logger.fine(String.format("Refreshed in %d ms",
+                              (System.nanoTime() - started) / 1_000_000));
+  }
+}
@@ -0,0 +1,361 @@
+//  ConflictDetector.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, finds overlapping events and understaffed shifts over a date range
+ * 2026-10-18 : Reads the people from RosterStore instead of querying PERSON
+ * 2026-10-18 : Only leave and TDY (AbsenceTypes, shared with StaffingOutlook) make a person unavailable, not every event
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Checks a date range, e.g. the next 90 days of a workcenter, for two kinds
+ * of conflict:</p>
+ *
+ * <ul>
+ * <li><code>EVENT_OVERLAP</code>: two of a person's events (leave,
+ * appointments, TDY, ...) overlap.</li>
+ * <li><code>UNDERSTAFFED</code>: fewer people are available on a
+ * workcenter's shift than its minimum.  A person is available on a day when
+ * they are on that shift (per <code>SHIFT_DATE</code>) and not absent
+ * (leave or TDY, per <code>AbsenceTypes</code>, as in
+ * <code>StaffingOutlook</code>).
+ * Only shifts with at least one person assigned that day are checked, and
+ * consecutive understaffed days are reported as one conflict.</li>
+ * </ul>
+ *
+ * <p>
+ * Both are sweep-line passes over the in-memory <code>ShiftTimeline</code>
+ * and <code>EventIndex</code>: each person's events are walked once in start
+ * order, and their absences are added to a per-day difference array, so the
+ * cost is linear in people &times; days plus events.  People come from
+ * <code>RosterStore</code>, so apart from the one-time index loads, nothing
+ * is queried.</p>
+ */
+public class ConflictDetector {
+
+  private static final Logger logger =
+      Logger.getLogger(ConflictDetector.class.getName());
+
+  public enum Type { EVENT_OVERLAP, UNDERSTAFFED }
+
+  private int defaultMinimum = 1;
+  private final Map<Integer, Integer> minimumByShift = new HashMap<>();
+
+  /**
+   * <p>
+   * Sets the number of people that must be available on every shift, unless
+   * set for the shift itself.  The default is 1.</p>
+   */
+  public void setMinimumStaffing(int minimum) {
+    this.defaultMinimum = minimum;
+  }
+
+  public void setMinimumStaffing(int shiftId, int minimum) {
+    minimumByShift.put(shiftId, minimum);
+  }
+
+  public int getMinimumStaffing(int shiftId) {
+    return minimumByShift.getOrDefault(shiftId, defaultMinimum);
+  }
+
+  /**
+   * <p>
+   * Checks the people of one workcenter, or everyone if
+   * <code>workcenterId</code> is less than 1, from <code>from</code> through
+   * <code>to</code> (inclusive).</p>
+   *
+   * @return the conflicts, ordered by first day, then type
+   */
+  public List<Conflict> check(int workcenterId, LocalDate from,
+                              LocalDate to) {
+    long started = System.nanoTime();
+    long first = from.toEpochDay();
+    int days = (int) (to.toEpochDay() - first) + 1;
+    List<Conflict> conflicts = new ArrayList<>();
+    if (days <= 0) {
+      return conflicts;
+    }
+
+    int[][] people = getPeople(workcenterId);
+    int[] personIds = people[0];
+    int[] workcenterIds = people[1];
+
+    int[] shifts = new int[days];
+    int[] absent = new int[days + 1];
+    Map<Long, Coverage> coverage = new HashMap<>();
+    OverlapSweep sweep = new OverlapSweep(conflicts, first, absent,
+                                          AbsenceTypes.load());
+
+    for (int p = 0; p < personIds.length; p++) {
+      int personId = personIds[p];
+
+      //  Events: report overlaps and mark days absent
+      Arrays.fill(absent, 0);
+      sweep.start(personId);
+      EventIndex.overlapping(personId, first, first + days - 1, sweep);
+
+      //  Shifts: count each day the person is on shift, and whether they
+      //  are there, against their workcenter's shift
+      ShiftTimeline.fill(personId, first, shifts);
+      int away = 0;
+      Coverage cells = null;
+      for (int day = 0; day < days; day++) {
+        away += absent[day];
+        int shift = shifts[day];
+        if (shift < 0) {
+          continue;
+        }
+        if (cells == null || cells.shiftId != shift) {
+          cells = coverage.computeIfAbsent(
+              key(workcenterIds[p], shift),
+              k -> new Coverage((int) (k >>> 32), (int) (long) k, days));
+        }
+        cells.assigned[day]++;
+        if (away == 0) {
+          cells.available[day]++;
+        }
+      }
+    }
+
+    for (Coverage cells : coverage.values()) {
+      cells.report(conflicts, from, getMinimumStaffing(cells.shiftId));
+    }
+
+    conflicts.sort((a, b) -> {
+      int byDate = a.from.compareTo(b.from);
+      return (byDate != 0) ? byDate : a.type.compareTo(b.type);
+    });
+    logger.fine(String.format("Checked %d people over %d days in %d ms: "
+                              + "%d conflicts", personIds.length, days,
+                              (System.nanoTime() - started) / 1_000_000,
+                              conflicts.size()));
+    return conflicts;
+  }
+
+  private static long key(int workcenterId, int shiftId) {
+    return ((long) workcenterId << 32) | (shiftId & 0xffffffffL);
+  }
+
+  /**
+   * @return person IDs and their workcenter IDs, as two parallel arrays
+   */
+  private static int[][] getPeople(int workcenterId) {
+    RosterStore.Snapshot roster = RosterStore.get();
+    int[] rows = new int[roster.size()];
+    int size = roster.select(workcenterId, 0, 0, 0, 0, rows);
+
+    int[][] people = new int[2][size];
+    for (int x = 0; x < size; x++) {
+      people[0][x] = roster.id(rows[x]);
+      people[1][x] = roster.workcenterId(rows[x]);
+    }
+    return people;
+  }
+
+  /**
+   * Walks one person's events in start order, keeping the events still in
+   * progress; each new event overlaps exactly the ones in progress that
+   * have not ended before it starts.  Also adds each absence to the
+   * difference array: +1 on its first day in range, -1 after its last.
+   */
+  private static final class OverlapSweep implements EventIndex.Visitor {
+    private final List<Conflict> conflicts;
+    private final long first;
+    private final int[] absent;
+    private final AbsenceTypes absences;
+
+    private int personId;
+    private int size;
+    private int[] ids = new int[8];
+    private int[] starts = new int[8];
+    private int[] ends = new int[8];
+
+    OverlapSweep(List<Conflict> conflicts, long first, int[] absent,
+                 AbsenceTypes absences) {
+      this.conflicts = conflicts;
+      this.first = first;
+      this.absent = absent;
+      this.absences = absences;
+    }
+
+    void start(int personId) {
+      this.personId = personId;
+      this.size = 0;
+    }
+
+    @Override
+    public void visit(int eventId, int startDay, int endDay, int typeId,
+                      String description) {
+      int kept = 0;
+      for (int i = 0; i < size; i++) {
+        if (ends[i] < startDay) {
+          continue;  // ended before this one starts; drop it
+        }
+        conflicts.add(new Conflict(Type.EVENT_OVERLAP,
+            LocalDate.ofEpochDay(Math.max(startDay, first)),
+            LocalDate.ofEpochDay(Math.min(endDay, ends[i])),
+            personId, ids[i], eventId, -1, -1, 0, 0));
+        ids[kept] = ids[i];
+        starts[kept] = starts[i];
+        ends[kept] = ends[i];
+        kept++;
+      }
+      size = kept;
+
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        starts = Arrays.copyOf(starts, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+      }
+      ids[size] = eventId;
+      starts[size] = startDay;
+      ends[size] = endDay;
+      size++;
+
+      if (absences.isAbsence(typeId)) {
+        absent[(int) (Math.max(startDay, first) - first)]++;
+        absent[(int) Math.min(endDay - first + 1, absent.length - 1)]--;
+      }
+    }
+  }
+
+  /**
+   * Per-day counts for one workcenter's shift.
+   */
+  private static final class Coverage {
+    final int workcenterId;
+    final int shiftId;
+    final int[] assigned;
+    final int[] available;
+
+    Coverage(int workcenterId, int shiftId, int days) {
+      this.workcenterId = workcenterId;
+      this.shiftId = shiftId;
+      this.assigned = new int[days];
+      this.available = new int[days];
+    }
+
+    void report(List<Conflict> conflicts, LocalDate from, int minimum) {
+      int runStart = -1;
+      int fewest = Integer.MAX_VALUE;
+
+      for (int day = 0; day <= available.length; day++) {
+        boolean shortDay = day < available.length && assigned[day] > 0
+                           && available[day] < minimum;
+        if (shortDay) {
+          if (runStart < 0) {
+            runStart = day;
+            fewest = Integer.MAX_VALUE;
+          }
+          fewest = Math.min(fewest, available[day]);
+        } else if (runStart >= 0) {
+          conflicts.add(new Conflict(Type.UNDERSTAFFED,
+              from.plusDays(runStart), from.plusDays(day - 1),
+              -1, -1, -1, workcenterId, shiftId, fewest, minimum));
+          runStart = -1;
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * One conflict.  <code>EVENT_OVERLAP</code> sets the person and the two
+   * event IDs; <code>UNDERSTAFFED</code> sets the workcenter, the shift, the
+   * fewest people available on any day of the run and the minimum.  Unused
+   * IDs are <code>-1</code>.</p>
+   */
+  public static final class Conflict {
+    private final Type type;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final int personId;
+    private final int eventId;
+    private final int otherEventId;
+    private final int workcenterId;
+    private final int shiftId;
+    private final int available;
+    private final int required;
+
+    Conflict(Type type, LocalDate from, LocalDate to, int personId,
+             int eventId, int otherEventId, int workcenterId, int shiftId,
+             int available, int required) {
+      this.type = type;
+      this.from = from;
+      this.to = to;
+      this.personId = personId;
+      this.eventId = eventId;
+      this.otherEventId = otherEventId;
+      this.workcenterId = workcenterId;
+      this.shiftId = shiftId;
+      this.available = available;
+      this.required = required;
+    }
+
+    public Type getType() {
+      return type;
+    }
+
+    public LocalDate getFrom() {
+      return from;
+    }
+
+    public LocalDate getTo() {
+      return to;
+    }
+
+    public int getPersonId() {
+      return personId;
+    }
+
+    public int getEventId() {
+      return eventId;
+    }
+
+    public int getOtherEventId() {
+      return otherEventId;
+    }
+
+    public int getWorkcenterId() {
+      return workcenterId;
+    }
+
+    public int getShiftId() {
+      return shiftId;
+    }
+
+    public int getAvailable() {
+      return available;
+    }
+
+    public int getRequired() {
+      return required;
+    }
+
+    @Override
+    public String toString() {
+      if (type == Type.EVENT_OVERLAP) {
+        return String.format("%s to %s: person %d has overlapping events "
+                             + "%d and %d", from, to, personId, eventId,
+                             otherEventId);
+      }
+      return String.format("%s to %s: workcenter %d, shift %d has %d of %d "
+                           + "people available", from, to, workcenterId,
+                           shiftId, available, required);
+    }
+  }
+}
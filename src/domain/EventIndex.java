@@ -0,0 +1,375 @@
+//  EventIndex.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, an in-memory interval index of PERSON_EVENT for overlap queries
+ * 2026-10-18 : invalidate() is called by Caches.refresh(), so other clients' changes can be seen
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+import util.DBConnectionPool;
+
+/**
+ * <p>
+ * Every person's <code>PERSON_EVENT</code> rows, held in memory as an
+ * interval tree per person, to answer "which events overlap these days"
+ * in O(log n + k) for n events and k matches.  The table is read once, on
+ * first use; after that <code>PersonEventDAO</code> keeps it current through
+ * <code>record()</code> and <code>remove()</code>.</p>
+ *
+ * <p>
+ * Each person's events are kept in parallel arrays sorted by start day.
+ * The sorted array doubles as a balanced search tree (the node for
+ * <code>[lo, hi)</code> is its midpoint), and <code>maxEnd</code> holds the
+ * latest end day under each node, so a query skips any subtree that ends
+ * before it starts.  Dates are epoch days; times of day are not
+ * indexed.</p>
+ *
+ * <p>
+ * Changes made by other clients of a shared database are not seen until
+ * <code>Caches.refresh()</code> calls <code>invalidate()</code>.</p>
+ */
+final class EventIndex {
+
+  private static final Logger logger =
+      Logger.getLogger(EventIndex.class.getName());
+
+  /**
+   * <p>
+   * Receives the events found by <code>overlapping()</code>, in start
+   * order.</p>
+   */
+  interface Visitor {
+    void visit(int eventId, int startDay, int endDay, int typeId,
+               String description);
+  }
+
+  //  Indexed by person ID; null until loaded.  Each slot is replaced, never
+  //  changed in place, so readers need no lock.
+  private static volatile AtomicReferenceArray<Events> index;
+
+  private EventIndex() { }
+
+  /**
+   * <p>
+   * Visits the person's events that overlap <code>fromDay</code> through
+   * <code>toDay</code> (inclusive).</p>
+   *
+   * @return the number of events visited
+   */
+  static int overlapping(int personId, long fromDay, long toDay,
+                         Visitor visitor) {
+    Events events = get(personId);
+    if (events == null || fromDay > toDay) {
+      return 0;
+    }
+    return events.visit(0, events.ids.length, clamp(fromDay), clamp(toDay),
+                        visitor);
+  }
+
+  /**
+   * <p>
+   * Adds a committed event.</p>
+   */
+  static synchronized void record(int eventId, int personId, long startDay,
+                                  long endDay, int typeId,
+                                  String description) {
+    AtomicReferenceArray<Events> current = index;
+    if (current == null) {
+      return;  // not loaded yet; the load will read the new row
+    }
+    if (personId >= current.length()) {
+      current = grow(current, personId + 1);
+      index = current;
+    }
+
+    Events events = current.get(personId);
+    current.set(personId, (events == null ? Events.EMPTY : events)
+        .with(eventId, clamp(startDay), clamp(endDay), typeId, description));
+  }
+
+  /**
+   * <p>
+   * Drops an event, after it is deleted from <code>PERSON_EVENT</code>.</p>
+   */
+  static synchronized void remove(int personId, int eventId) {
+    AtomicReferenceArray<Events> current = index;
+    if (current == null || personId < 0 || personId >= current.length()) {
+      return;
+    }
+    Events events = current.get(personId);
+    if (events != null) {
+      current.set(personId, events.without(eventId));
+    }
+  }
+
+  /**
+   * <p>
+   * Forgets everything; the table is read again on next use.</p>
+   */
+  static synchronized void invalidate() {
+    index = null;
+  }
+
+  private static Events get(int personId) {
+    AtomicReferenceArray<Events> current = index;
+    if (current == null) {
+      current = load();
+    }
+    return (personId >= 0 && personId < current.length())
+        ? current.get(personId) : null;
+  }
+
+  private static int clamp(long day) {
+    return (int) Math.max(Integer.MIN_VALUE,
+                          Math.min(Integer.MAX_VALUE, day));
+  }
+
+  private static AtomicReferenceArray<Events> grow(
+      AtomicReferenceArray<Events> current, int size) {
+    AtomicReferenceArray<Events> grown = new AtomicReferenceArray<>(
+        Math.max(size, current.length() * 2));
+    for (int i = 0; i < current.length(); i++) {
+      grown.set(i, current.get(i));
+    }
+    return grown;
+  }
+
+  private static synchronized AtomicReferenceArray<Events> load() {
+    if (index != null) {
+      return index;
+    }
+
+    PreparedStatement request = null;
+    Connection conn = null;
+    AtomicReferenceArray<Events> loaded = new AtomicReferenceArray<>(16);
+    long started = System.nanoTime();
+    int rows = 0;
+
+    try {
+      conn = DBConnectionPool.getPoolConnection();
+      request = conn.prepareStatement(LOAD_STMT);
+      ResultSet rset = request.executeQuery();
+
+      Builder builder = new Builder();
+      while (rset.next()) {
+        int personId = rset.getInt("person_id");
+        if (personId != builder.personId) {
+          loaded = builder.flush(loaded);
+          builder.personId = personId;
+        }
+        builder.add(rset.getInt("id"),
+                    clamp(rset.getDate("start_date").toLocalDate()
+                                                    .toEpochDay()),
+                    clamp(rset.getDate("end_date").toLocalDate()
+                                                  .toEpochDay()),
+                    rset.getInt("person_event_type_id"),
+                    rset.getString("description"));
+        rows++;
+      }
+      loaded = builder.flush(loaded);
+
+    } catch (SQLException se) {
+      throw new RuntimeException(
+          "A database error occurred. " + se.getMessage());
+    } catch (Exception e) {
+      throw new RuntimeException("Exception: " + e.getMessage());
+    } finally {
+      if (request != null) {
+        try {
+          request.close();
+        } catch (SQLException se) {
+          se.printStackTrace(System.err);
+        }
+      }
+      if (conn != null) {
+        try {
+          conn.close();
+        } catch (Exception e) {
+          e.printStackTrace(System.err);
+        }
+      }
+    }
+
+    logger.fine(String.format("Loaded %d events in %d ms", rows,
+                              (System.nanoTime() - started) / 1_000_000));
+    index = loaded;
+    return loaded;
+  }
+
+  /**
+   * Collects one person's rows, which the load query returns in start
+   * order.
+   */
+  private static final class Builder {
+    int personId = -1;
+    int size;
+    int[] ids = new int[16];
+    int[] starts = new int[16];
+    int[] ends = new int[16];
+    int[] types = new int[16];
+    String[] descriptions = new String[16];
+
+    void add(int id, int start, int end, int type, String description) {
+      if (size == ids.length) {
+        ids = Arrays.copyOf(ids, size * 2);
+        starts = Arrays.copyOf(starts, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+        types = Arrays.copyOf(types, size * 2);
+        descriptions = Arrays.copyOf(descriptions, size * 2);
+      }
+      ids[size] = id;
+      starts[size] = start;
+      ends[size] = end;
+      types[size] = type;
+      descriptions[size] = description;
+      size++;
+    }
+
+    AtomicReferenceArray<Events> flush(AtomicReferenceArray<Events> loaded) {
+      if (personId < 0 || size == 0) {
+        return loaded;
+      }
+      if (personId >= loaded.length()) {
+        loaded = grow(loaded, personId + 1);
+      }
+      loaded.set(personId, new Events(Arrays.copyOf(ids, size),
+                                       Arrays.copyOf(starts, size),
+                                       Arrays.copyOf(ends, size),
+                                       Arrays.copyOf(types, size),
+                                       Arrays.copyOf(descriptions, size)));
+      size = 0;
+      return loaded;
+    }
+  }
+
+  /**
+   * One person's events, sorted by start day, then ID.  Immutable; updates
+   * build a new one.
+   */
+  private static final class Events {
+    static final Events EMPTY = new Events(new int[0], new int[0],
+                                           new int[0], new int[0],
+                                           new String[0]);
+
+    final int[] ids;
+    final int[] starts;
+    final int[] ends;
+    final int[] types;
+    final String[] descriptions;
+    final int[] maxEnd;
+
+    Events(int[] ids, int[] starts, int[] ends, int[] types,
+           String[] descriptions) {
+      this.ids = ids;
+      this.starts = starts;
+      this.ends = ends;
+      this.types = types;
+      this.descriptions = descriptions;
+      this.maxEnd = new int[ids.length];
+      buildMaxEnd(0, ids.length);
+    }
+
+    /** Fills maxEnd for the subtree over [lo, hi) and returns its root's. */
+    private int buildMaxEnd(int lo, int hi) {
+      if (lo >= hi) {
+        return Integer.MIN_VALUE;
+      }
+      int mid = (lo + hi) >>> 1;
+      maxEnd[mid] = Math.max(ends[mid], Math.max(buildMaxEnd(lo, mid),
+                                                 buildMaxEnd(mid + 1, hi)));
+      return maxEnd[mid];
+    }
+
+    int visit(int lo, int hi, int from, int to, Visitor visitor) {
+      if (lo >= hi) {
+        return 0;
+      }
+      int mid = (lo + hi) >>> 1;
+      if (maxEnd[mid] < from) {
+        return 0;  // everything under this node ends too early
+      }
+
+      int found = visit(lo, mid, from, to, visitor);
+      if (starts[mid] > to) {
+        return found;  // this node and everything right of it start too late
+      }
+      if (ends[mid] >= from) {
+        visitor.visit(ids[mid], starts[mid], ends[mid], types[mid],
+                      descriptions[mid]);
+        found++;
+      }
+      return found + visit(mid + 1, hi, from, to, visitor);
+    }
+
+    Events with(int id, int start, int end, int type, String description) {
+      int at = 0;
+      while (at < ids.length
+             && (starts[at] < start
+                 || (starts[at] == start && ids[at] < id))) {
+        at++;
+      }
+      return new Events(insert(ids, at, id), insert(starts, at, start),
+                        insert(ends, at, end), insert(types, at, type),
+                        insert(descriptions, at, description));
+    }
+
+    Events without(int id) {
+      for (int at = 0; at < ids.length; at++) {
+        if (ids[at] == id) {
+          return new Events(delete(ids, at), delete(starts, at),
+                            delete(ends, at), delete(types, at),
+                            delete(descriptions, at));
+        }
+      }
+      return this;
+    }
+
+    private static int[] insert(int[] array, int at, int value) {
+      int[] copy = new int[array.length + 1];
+      System.arraycopy(array, 0, copy, 0, at);
+      copy[at] = value;
+      System.arraycopy(array, at, copy, at + 1, array.length - at);
+      return copy;
+    }
+
+    private static String[] insert(String[] array, int at, String value) {
+      String[] copy = new String[array.length + 1];
+      System.arraycopy(array, 0, copy, 0, at);
+      copy[at] = value;
+      System.arraycopy(array, at, copy, at + 1, array.length - at);
+      return copy;
+    }
+
+    private static int[] delete(int[] array, int at) {
+      int[] copy = new int[array.length - 1];
+      System.arraycopy(array, 0, copy, 0, at);
+      System.arraycopy(array, at + 1, copy, at, array.length - at - 1);
+      return copy;
+    }
+
+    private static String[] delete(String[] array, int at) {
+      String[] copy = new String[array.length - 1];
+      System.arraycopy(array, 0, copy, 0, at);
+      System.arraycopy(array, at + 1, copy, at, array.length - at - 1);
+      return copy;
+    }
+  }
+
+  private static final String LOAD_STMT = "SELECT id, person_id, "
+      + "start_date, end_date, person_event_type_id, description "
+      + "FROM person_event "
+      + "ORDER BY person_id, start_date, id";
+}
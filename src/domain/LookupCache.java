@@ -0,0 +1,246 @@
+//  LookupCache.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, to hold the RANK, SHIFT, SKILL, WORKCENTER and PERSON_EVENT_TYPE tables in memory
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import util.DBConnectionPool;
+
+/**
+ * <p>
+ * Process-wide cache of the small lookup tables.  Each table is read once,
+ * on first use (or by <code>reload()</code> at startup), and kept as an
+ * immutable, two-way ID/name mapping.  <code>RankDAO</code>,
+ * <code>ShiftDAO</code>, <code>SkillDAO</code>, <code>WorkcenterDAO</code>
+ * and <code>PersonEventTypeDAO</code> all answer from here.</p>
+ *
+ * <p>
+ * Anything that changes one of these tables must call
+ * <code>invalidate()</code> (or <code>reload()</code>) afterwards.</p>
+ */
+public final class LookupCache {
+
+  public enum Lookup {
+    RANK("rank", "name"),
+    SHIFT("shift", "name"),
+    SKILL("skill", "level"),
+    WORKCENTER("workcenter", "name"),
+    PERSON_EVENT_TYPE("person_event_type", "name");
+
+    private final String statement;
+    private final String nameColumn;
+
+    Lookup(String tableName, String nameColumn) {
+      this.statement = "SELECT id, " + nameColumn + " "
+          + "FROM " + tableName + " "
+          + "ORDER BY id";
+      this.nameColumn = nameColumn;
+    }
+  }
+
+  private static final Logger logger =
+      Logger.getLogger(LookupCache.class.getName());
+
+  private static final Map<Lookup, Table> tables = new ConcurrentHashMap<>();
+  private static final List<Consumer<Lookup>> reloadListeners =
+      new CopyOnWriteArrayList<>();
+
+  private LookupCache() { }
+
+  /**
+   * <p>
+   * Returns the cached table, reading it from the database on first
+   * use.</p>
+   *
+   * @param lookup
+   * @return the table, or <code>null</code> if it could not be read
+   */
+  public static Table get(Lookup lookup) {
+    Table table = tables.get(lookup);
+    if (table != null) {
+      return table;
+    }
+
+    synchronized (tables) {
+      table = tables.get(lookup);
+      if (table == null) {
+        table = load(lookup);
+        if (table != null) {
+          tables.put(lookup, table);
+        }
+      }
+    }
+    return table;
+  }
+
+  /**
+   * <p>
+   * Drops one table from the cache; it is read again on next use.</p>
+   *
+   * @param lookup
+   */
+  public static void invalidate(Lookup lookup) {
+    tables.remove(lookup);
+    fireReloaded(lookup);
+  }
+
+  /**
+   * <p>
+   * Drops every table from the cache.</p>
+   */
+  public static void invalidateAll() {
+    tables.clear();
+    for (Lookup lookup : Lookup.values()) {
+      fireReloaded(lookup);
+    }
+  }
+
+  /**
+   * <p>
+   * Re-reads every table from the database now.  Meant to be called once
+   * at startup, after the database has been checked or built, and after
+   * any bulk change to the lookup tables.</p>
+   */
+  public static void reload() {
+    for (Lookup lookup : Lookup.values()) {
+      Table table = load(lookup);
+      if (table != null) {
+        tables.put(lookup, table);
+      } else {
+        tables.remove(lookup);
+      }
+      fireReloaded(lookup);
+    }
+  }
+
+  /**
+   * <p>
+   * Registers a callback that runs whenever a table is invalidated or
+   * reloaded, so anything derived from the lookup data can rebuild
+   * itself.</p>
+   *
+   * @param listener
+   */
+  public static void addReloadListener(Consumer<Lookup> listener) {
+    reloadListeners.add(listener);
+  }
+
+  public static void removeReloadListener(Consumer<Lookup> listener) {
+    reloadListeners.remove(listener);
+  }
+
+  private static void fireReloaded(Lookup lookup) {
+    for (Consumer<Lookup> listener : reloadListeners) {
+      listener.accept(lookup);
+    }
+  }
+
+  private static Table load(Lookup lookup) {
+    PreparedStatement request = null;
+    Connection conn = null;
+
+    try {
+      conn = DBConnectionPool.getPoolConnection();
+      request = conn.prepareStatement(lookup.statement);
+
+      ResultSet rset = request.executeQuery();
+      LinkedHashMap<Integer, String> byId = new LinkedHashMap<>();
+
+      while (rset.next()) {
+        byId.put(rset.getInt("id"), rset.getString(lookup.nameColumn));
+      }
+
+      logger.fine("Loaded " + byId.size() + " rows for " + lookup);
+      return new Table(byId);
+
+    } catch (SQLException se) {
+      logger.log(Level.WARNING, "A database error occurred. " + se.getMessage());
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Exception: " + e.getMessage());
+    } finally {
+
+      if (request != null) {
+        try {
+          request.close();
+        } catch (SQLException se) {
+          se.printStackTrace(System.err);
+        }
+      }
+
+      if (conn != null) {
+        try {
+          conn.close();
+        } catch (Exception e) {
+          e.printStackTrace(System.err);
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * <p>
+   * One lookup table: names in ID order, plus ID-to-name and name-to-ID
+   * maps.  Immutable.</p>
+   */
+  public static final class Table {
+    private final List<String> names;
+    private final Map<Integer, String> map;
+    private final Map<String, Integer> mapReversed;
+
+    private Table(LinkedHashMap<Integer, String> byId) {
+      HashMap<String, Integer> byName = new HashMap<>();
+      for (Map.Entry<Integer, String> entry : byId.entrySet()) {
+        byName.put(entry.getValue(), entry.getKey());
+      }
+
+      this.names = Collections.unmodifiableList(new ArrayList<>(byId.values()));
+      this.map = Collections.unmodifiableMap(byId);
+      this.mapReversed = Collections.unmodifiableMap(byName);
+    }
+
+    public List<String> getNames() {
+      return names;
+    }
+
+    public Map<Integer, String> getMap() {
+      return map;
+    }
+
+    public Map<String, Integer> getMapReversed() {
+      return mapReversed;
+    }
+
+    public String getName(int id) {
+      return map.get(id);
+    }
+
+    public Integer getId(String name) {
+      return mapReversed.get(name);
+    }
+  }
+
+}
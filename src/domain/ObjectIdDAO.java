@@ -4,6 +4,10 @@
  * 2016-03-23 : Grouped imports by root package
  * 2016-03-23 : Formatted to match Google Java Style (up to 4.5.1)
  * 2016-03-23 : Renamed getNextObjectID() to getNextObjectId()
+ *
+ * 2026-10-18 : getNextObjectId() hands out IDs from blocks reserved with one atomic UPDATE, instead of a SELECT and UPDATE per ID
+ * 2026-10-18 : Added PERSON_EVENT and reserveBlock()
+ * 2026-10-18 : reserveBlock() always commits on a connection of its own, outside any UnitOfWork
  */
 package domain;
 
@@ -11,12 +15,22 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
 import util.DBConnectionPool;
 
 /**
+ * <p>
+ * Hands out object IDs per class name (<code>PERSON</code>,
+ * <code>SHIFT_DATE</code>, <code>PERSON_EVENT</code>).  IDs are reserved
+ * from the <code>OBJECTIDS</code> table in blocks of
+ * <code>BLOCK_SIZE</code>, and then handed out from memory.  Each block is
+ * reserved with a single <code>UPDATE ... SET IDNumber = IDNumber + n</code>,
+ * so several clients sharing one database never get the same ID.  IDs left
+ * in a block when the application exits are skipped.</p>
  *
  * @author Alan Johnson
  */
@@ -24,38 +38,88 @@ class ObjectIdDAO {
   private static final Logger logger = Logger.getLogger(ObjectIdDAO.class.getName());
   public static final String PERSON = "Person";
   public static final String SHIFT_DATE = "Shift_Date";
+  public static final String PERSON_EVENT = "Person_Event";
+
+  static final int BLOCK_SIZE = 100;
+
+  //  Current block for each class name, shared by every ObjectIdDAO
+  private static final ConcurrentHashMap<String, IdBlock> blocks =
+      new ConcurrentHashMap<>();
 
   public ObjectIdDAO() { }
 
   public int getNextObjectId(String objectClassName) {
+    while (true) {
+      IdBlock block = blocks.get(objectClassName);
+      if (block != null) {
+        int id = block.next.getAndIncrement();
+        if (id < block.limit) {
+          return id;
+        }
+      }
+
+      //  Block missing or used up: one thread reserves the next one
+      synchronized (blocks) {
+        if (blocks.get(objectClassName) == block) {
+          int first = reserveBlock(objectClassName, BLOCK_SIZE);
+          blocks.put(objectClassName,
+                     new IdBlock(first, first + BLOCK_SIZE));
+        }
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Reserves <code>count</code> consecutive IDs for a class in its own short
+   * transaction.</p>
+   *
+   * @param objectClassName
+   * @param count
+   * @return the first reserved ID; the block runs through
+   *         <code>first + count - 1</code>
+   */
+  int reserveBlock(String objectClassName, int count) {
     Connection conn = null;
-    PreparedStatement queryStmt = null;
     PreparedStatement incrStmt = null;
+    PreparedStatement queryStmt = null;
     ResultSet rset = null;
-    int id = -1;
-    
+    int first = -1;
+
     try {
-      conn = DBConnectionPool.getPoolConnection();
-      queryStmt = conn.prepareStatement(NEXT_ID_QUERY);
-      queryStmt.setString(1, objectClassName);
-      rset = queryStmt.executeQuery();
-      
-      if (rset.next()) {
-        id = rset.getInt("IDNumber");
-        incrStmt = conn.prepareStatement(UPDATE_ID_CMD);
-        incrStmt.setInt(1, id + 1);
-        incrStmt.setString(2, objectClassName);
-        incrStmt.executeUpdate();
-      } else {
+      //  Never part of a UnitOfWork: a rolled-back reservation would let
+      //  the IDs in memory be handed out again
+      conn = DBConnectionPool.getUnsharedConnection();
+      conn.setAutoCommit(false);
+
+      incrStmt = conn.prepareStatement(RESERVE_IDS_CMD);
+      incrStmt.setInt(1, count);
+      incrStmt.setString(2, objectClassName);
+
+      if (incrStmt.executeUpdate() != 1) {
+        conn.rollback();
         throw new RuntimeException(
                 "No ObjectID entry for class type: " + objectClassName);
       }
+
+      //  The UPDATE holds the row lock, so this reads our own new value
+      queryStmt = conn.prepareStatement(NEXT_ID_QUERY);
+      queryStmt.setString(1, objectClassName);
+      rset = queryStmt.executeQuery();
+      rset.next();
+      first = rset.getInt("IDNumber") - count;
+
+      conn.commit();
+
+      logger.fine(String.format("Reserved %s IDs %d to %d",
+                                objectClassName, first, first + count - 1));
     } catch (SQLException se) {
+      rollback(conn);
       throw new RuntimeException("A database error occurred. "
               + se.getMessage());
-    } //  TODO:  Get more specific exception catches (if applicable)
-    catch (Exception e) {
-      throw new RuntimeException("Exception: " + e.getMessage());
+    } catch (RuntimeException re) {
+      rollback(conn);
+      throw re;
     } // Clean up JDBC resources
     finally {
       if (rset != null) {
@@ -87,11 +151,31 @@ class ObjectIdDAO {
         }
       }
     }
-    return id;
+    return first;
   }
-  
+
+  private static void rollback(Connection conn) {
+    if (conn != null) {
+      try {
+        conn.rollback();
+      } catch (SQLException se) {
+        logger.log(Level.WARNING, se.getMessage());
+      }
+    }
+  }
+
+  private static final class IdBlock {
+    final AtomicInteger next;
+    final int limit;
+
+    IdBlock(int first, int limit) {
+      this.next = new AtomicInteger(first);
+      this.limit = limit;
+    }
+  }
+
   private static final String NEXT_ID_QUERY
           = "SELECT IDNumber FROM ObjectIDs WHERE className = ?";
-  private static final String UPDATE_ID_CMD
-          = "UPDATE ObjectIDs SET IDNumber = ? WHERE className = ?";
+  private static final String RESERVE_IDS_CMD
+          = "UPDATE ObjectIDs SET IDNumber = IDNumber + ? WHERE className = ?";
 }
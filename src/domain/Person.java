@@ -16,6 +16,10 @@
  * 2016-03-08 : Added setRankID() and setSkillID() to work in parallel with setWorkcenterID()
  * 
  * 2016-03-24 : Changed all variables from Integer to int where appropriate
+ * 
+ * 2026-10-18 : Added a constructor that takes already-resolved names, for PersonDAO rows
+ * 2026-10-18 : Setters resolve names and IDs through LookupCache instead of constructing DAOs
+ * 2026-10-18 : Fixed setShift() so that it updates shift_id (it was updating skill_id)
  */
 
 /**
@@ -24,7 +28,7 @@
  */
 package domain;
 
-import java.util.Map;
+import domain.LookupCache.Lookup;
 
 public class Person implements java.io.Serializable {
 
@@ -61,6 +65,28 @@ public class Person implements java.io.Serializable {
         this(-1, "", "", 0, 0, 0, 0);
     }
 
+    /**
+     * Builds a person from a row whose names were already resolved (by a SQL
+     * join), so no lookups are needed.
+     */
+    Person(int oID, String fn, String ln,
+           int rID,  String rk,
+           int wcID, String wc,
+           int shID, String sh,
+           int skID, String sk) {
+        objectID = oID;
+        firstName = fn;
+        lastName = ln;
+        rank_id = rID;
+        rank = rk;
+        workcenter_id = wcID;
+        workcenter = wc;
+        shift_id = shID;
+        shift = sh;
+        skill_id = skID;
+        skill = sk;
+    }
+
     Person(int oID, String fn, String ln, int rID, int wcID, int shID, int skID) {
         objectID = oID;
         firstName = fn;
@@ -165,15 +191,13 @@ public class Person implements java.io.Serializable {
     public void setWorkcenter(String workcenter) {
         this.workcenter = workcenter;
         
-        Map<String, Integer> mapReversed = (new WorkcenterDAO()).getMapReversed();
-        workcenter_id = mapReversed.get(workcenter);
+        workcenter_id = lookupId(Lookup.WORKCENTER, workcenter);
     }
     
     private void setWorkcenterID (Integer workcenter_id) {
         this.workcenter_id = workcenter_id;
         
-        Map<Integer, String> map = (new WorkcenterDAO()).getMap();
-        workcenter = map.get(workcenter_id);
+        workcenter = lookupName(Lookup.WORKCENTER, workcenter_id);
     }
 
     /**
@@ -184,8 +208,7 @@ public class Person implements java.io.Serializable {
     public void setRank(String rank) {
         this.rank = rank;
         
-        Map<String, Integer> mapReversed = (new RankDAO()).getMapReversed();
-        rank_id = mapReversed.get(rank);
+        rank_id = lookupId(Lookup.RANK, rank);
     }
     
     /**
@@ -196,8 +219,7 @@ public class Person implements java.io.Serializable {
     public void setRankID(int rID) {
         this.rank_id = rID;
         
-        Map<Integer, String> map = (new RankDAO()).getMap();
-        rank = map.get(rank_id);
+        rank = lookupName(Lookup.RANK, rank_id);
     }
 
     /**
@@ -206,15 +228,13 @@ public class Person implements java.io.Serializable {
     public void setShift(String shift) {
         this.shift = shift;
         
-        Map<String, Integer> mapReversed = (new ShiftDAO()).getMapReversed();
-        skill_id = mapReversed.get(skill);
+        shift_id = lookupId(Lookup.SHIFT, shift);
     }
     
     private void setShiftID (Integer shift_id) {
         this.shift_id = shift_id;
         
-        Map<Integer, String> map = (new ShiftDAO()).getMap();
-        shift = map.get(shift_id);
+        shift = lookupName(Lookup.SHIFT, shift_id);
     }
 
     /**
@@ -223,14 +243,22 @@ public class Person implements java.io.Serializable {
     public void setSkill(String skill) {
         this.skill = skill;
         
-        Map<String, Integer> mapReversed = (new SkillDAO()).getMapReversed();
-        skill_id = mapReversed.get(skill);
+        skill_id = lookupId(Lookup.SKILL, skill);
     }
     
     public void setSkillID(int skID) {
         this.skill_id = skID;
         
-        Map<Integer, String> map = (new SkillDAO()).getMap();
-        skill = map.get(skill_id);
+        skill = lookupName(Lookup.SKILL, skill_id);
+    }
+
+    private static String lookupName(Lookup lookup, int id) {
+        LookupCache.Table table = LookupCache.get(lookup);
+        return (table == null) ? null : table.getName(id);
+    }
+
+    private static Integer lookupId(Lookup lookup, String name) {
+        LookupCache.Table table = LookupCache.get(lookup);
+        return (table == null) ? null : table.getId(name);
     }
 }
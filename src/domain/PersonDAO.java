@@ -24,6 +24,19 @@
  * 2016-03-25 : Replaced debug System.out calls with Logger calls
  * 
  * 2016-06-17 : Added `getPerson(String, String, int)` method to help `MainStage.java` find the appropriate person to edit
+ * 
+ * 2026-10-18 : getPeopleArrayListByShift() resolves every person's shift with one joined query instead of one ShiftDateDAO.getCurrentShift() call per person
+ * 2026-10-18 : getPerson(), getAllPeople() and getPeopleArrayListByShift() join in the rank/workcenter/shift/skill names and build each Person with readPerson(), with no per-row lookups
+ * 2026-10-18 : getPeopleArrayListByShift() filters on workcenter_id = ? (GET_BY_SHIFT_AND_WORKCENTER_STMT) instead of CAST (workcenter_id AS CHAR) LIKE ?
+ * 2026-10-18 : addPerson() inserts the person and start date in one UnitOfWork, committed once
+ * 2026-10-18 : getPerson(int), getAllPeople() and getPeopleArrayListByShift() read the in-memory RosterStore instead of querying PERSON
+ * 2026-10-18 : insert(), update() and delete() keep RosterStore current once their change is committed
+ * 2026-10-18 : Added getPeople(RosterFilter); getPeopleArrayListByShift() now uses it, so filters are answered by FilterIndex bitmaps
+ * 2026-10-18 : findPeople() searches SearchIndex (names, rank and workcenter) instead of LIKE '%x%', ranks its matches and returns full Persons; added findPeople(String, int)
+ * 2026-10-18 : Added getPeople(afterId, limit) for keyset pages, and streamPeople() to read PERSON through a cursor with a set fetch size
+ * 2026-10-18 : insert(), update() and delete() drop the affected WeekGridCache weeks once committed
+ * 2026-10-18 : The WeekGridCache weeks are dropped after RosterStore is updated, so a week built in between is not kept
+ * 2026-10-18 : insert() rethrows a failure instead of logging it, and addPerson() saves nothing without a start date
  */
 
 /**
@@ -39,8 +52,13 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -50,6 +68,7 @@ import javax.swing.table.TableModel;
 import net.proteanit.sql.DbUtils;
 
 import util.DBConnectionPool;
+import util.UnitOfWork;
 
 public class PersonDAO {
 
@@ -70,8 +89,15 @@ public class PersonDAO {
             conn = DBConnectionPool.getPoolConnection();
             stmt = conn.prepareStatement(DELETE_STMT);
             
-            stmt.setInt(1, person.getObjectID());
+            int personID = person.getObjectID();
+            stmt.setInt(1, personID);
             stmt.executeUpdate();
+            int workcenterID = person.getWorkcenterID();
+            UnitOfWork.afterCommit(() -> {
+                int[] before = WeekGridCache.workcenterOf(personID);
+                RosterStore.remove(personID);
+                WeekGridCache.personChanged(before, workcenterID);
+            });
 
         } catch (SQLException se) {
             throw new RuntimeException(
@@ -99,52 +125,50 @@ public class PersonDAO {
     private static final String DELETE_STMT = "DELETE FROM person "
             + "WHERE id = ?";
     
+    /**
+     * <p>
+     * Builds a <code>Person</code> from the current row of a query that
+     * starts with <code>PERSON_COLUMNS</code>.  The rank, workcenter, shift
+     * and skill names come from the row itself, so no lookups are run.</p>
+     */
+    private static Person readPerson(ResultSet rset) throws SQLException {
+        return new Person(rset.getInt("id"),
+                          rset.getString("first_name"),
+                          rset.getString("last_name"),
+                          rset.getInt("rank_id"),
+                          rset.getString("rank_name"),
+                          rset.getInt("workcenter_id"),
+                          rset.getString("workcenter_name"),
+                          rset.getInt("shift_id"),
+                          rset.getString("shift_name"),
+                          rset.getInt("skill_id"),
+                          rset.getString("skill_level"));
+    }
+    private static final String PERSON_COLUMNS = "SELECT person.id, "
+            + "person.first_name, person.last_name, "
+            + "person.rank_id,       rank.name       AS rank_name, "
+            + "person.workcenter_id, workcenter.name AS workcenter_name, "
+            + "person.shift_id,      shift.name      AS shift_name, "
+            + "person.skill_id,      skill.level     AS skill_level ";
+    private static final String PERSON_JOINS = "FROM person "
+            + "LEFT OUTER JOIN rank       ON rank.id       = person.rank_id "
+            + "LEFT OUTER JOIN workcenter ON workcenter.id = person.workcenter_id "
+            + "LEFT OUTER JOIN shift      ON shift.id      = person.shift_id "
+            + "LEFT OUTER JOIN skill      ON skill.id      = person.skill_id ";
+    private static final String PERSON_SELECT = PERSON_COLUMNS + PERSON_JOINS;
+    
+    /**
+     * <p>
+     * Reads the person from <code>RosterStore</code>; no query.</p>
+     * 
+     * @param personID
+     * @return the person, or <code>null</code> if there is none with that ID
+     */
     public Person getPerson(int personID) {
-        Person person = null;
-        PreparedStatement request = null;
-        Connection conn = null;
-
-        try {
-            conn = DBConnectionPool.getPoolConnection();
-            request = conn.prepareStatement(GET_BY_ID_STMT);
-            request.setInt(1, personID);
-
-            ResultSet rset = request.executeQuery();
-
-            if (rset.next()) {
-                int id = rset.getInt("id");
-                String firstName = rset.getString("first_name");
-                String lastName = rset.getString("last_name");
-
-                //  TODO:  Fix this:
-                person = new Person(id, firstName, lastName, 0, 0, 0, 0);
-            }
-        } catch (SQLException se) {
-            throw new RuntimeException(
-                    "A database error occurred. " + se.getMessage());
-        } catch (Exception e) {
-            throw new RuntimeException("Exception: " + e.getMessage());
-        } finally {
-            if (request != null) {
-                try {
-                    request.close();
-                } catch (SQLException se) {
-                    se.printStackTrace(System.err);
-                }
-            }
-            if (conn != null) {
-                try {
-                    conn.close();
-                } catch (Exception e) {
-                    e.printStackTrace(System.err);
-                }
-            }
-        }
-
-        return person;
+        RosterStore.Snapshot roster = RosterStore.get();
+        int row = roster.row(personID);
+        return (row < 0) ? null : roster.toPerson(row);
     }
-    private static final String GET_BY_ID_STMT = "SELECT * FROM person "
-            + "WHERE id = ?";
     
     public Person getPerson(String firstName, String lastName, int rankId) {
         Person person = null;
@@ -162,13 +186,7 @@ public class PersonDAO {
 
             
             if (rset.next()) {
-                int id = rset.getInt("id");
-                int wcId = rset.getInt("workcenter_id");
-                int shId = rset.getInt("shift_id");
-                int skId = rset.getInt("skill_id");
-
-                //  TODO:  Fix this:
-                person = new Person(id, firstName, lastName, rankId, wcId, shId, skId);
+                person = readPerson(rset);
             }
             if (rset.next()) {
               return null;
@@ -197,113 +215,177 @@ public class PersonDAO {
 
         return person;
     }
-    private static final String GET_STMT = "SELECT * FROM person "
-            + "WHERE first_name = ? "
-            + "AND   last_name  = ? "
-            + "AND   rank_id    = ?";
+    private static final String GET_STMT = PERSON_SELECT
+            + "WHERE person.first_name = ? "
+            + "AND   person.last_name  = ? "
+            + "AND   person.rank_id    = ?";
 
+    /**
+     * <p>
+     * Everyone whose first name, last name, rank or workcenter contains
+     * every word of <code>search</code>, best match first.  Answered from
+     * <code>SearchIndex</code>; no query.  A roster change is found once
+     * the index has been rebuilt in the background, a moment later.</p>
+     */
     public ArrayList<Person> findPeople(String search) {
-
-        PreparedStatement request = null;
-        Connection conn = null;
-
-        ArrayList<Person> personList = new ArrayList<>();
-        try {
-            conn = DBConnectionPool.getPoolConnection();
-            request = conn.prepareStatement(SEARCH_STMT);
-            search = search.toUpperCase();
-            request.setString(1, "%" + search + "%");
-            request.setString(2, "%" + search + "%");
-
-            ResultSet rset = request.executeQuery();
-
-            while (rset.next()) {
-                int id = rset.getInt("id");
-                String firstName = rset.getString("first_name");
-                String lastName = rset.getString("last_name");
-
-                //  TODO:  Fix this:
-                Person person = new Person(id, firstName, lastName, 0, 0, 0, 0);
-
-                personList.add(person);
-            }
-
-        } catch (SQLException se) {
-            throw new RuntimeException(
-                    "A database error occurred. " + se.getMessage());
-        } catch (Exception e) {
-            throw new RuntimeException("Exception: " + e.getMessage());
-        } finally {
-            if (request != null) {
-                try {
-                    request.close();
-                } catch (SQLException se) {
-                    se.printStackTrace(System.err);
-                }
-            }
-            if (conn != null) {
-                try {
-                    conn.close();
-                } catch (Exception e) {
-                    e.printStackTrace(System.err);
-                }
-            }
+        return findPeople(search, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * <p>
+     * The best <code>limit</code> matches for <code>search</code>, for
+     * typeahead: a whole name, then the start of a name, then anywhere in
+     * one.</p>
+     */
+    public ArrayList<Person> findPeople(String search, int limit) {
+        SearchIndex index = SearchIndex.get();
+        RosterStore.Snapshot roster = index.getRoster();
+        int[] rows = index.search(search, limit);
+        
+        ArrayList<Person> personList = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            personList.add(roster.toPerson(row));
         }
-
         return personList;
     }
-    private static final String SEARCH_STMT = "SELECT * FROM person "
-            + "WHERE (UPPER(first_name) LIKE ?) "
-            + "OR    (UPPER(last_name)  LIKE ?)";
 
+    /**
+     * <p>
+     * Everyone, in ID order, from <code>RosterStore</code>.</p>
+     */
     public ArrayList<Person> getAllPeople() {
-
+        RosterStore.Snapshot roster = RosterStore.get();
+        ArrayList<Person> personList = new ArrayList<>(roster.size());
+        
+        for (int row = 0; row < roster.size(); row++) {
+            personList.add(roster.toPerson(row));
+        }
+        return personList;
+    }
+    
+    /**
+     * <p>
+     * A page of the roster: up to <code>limit</code> people with IDs above
+     * <code>afterId</code>, in ID order, from <code>RosterStore</code>.
+     * Start with an <code>afterId</code> of 0 and pass the last ID of each
+     * page to get the next; a short page is the last.  Unlike an offset, the
+     * next page does not skip or repeat anyone when people are added or
+     * deleted in between.</p>
+     */
+    public ArrayList<Person> getPeople(int afterId, int limit) {
+        RosterStore.Snapshot roster = RosterStore.get();
+        int from = roster.rowAfter(afterId);
+        int to = (int) Math.min((long) from + Math.max(limit, 0),
+                                roster.size());
+        
+        ArrayList<Person> personList = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            personList.add(roster.toPerson(row));
+        }
+        return personList;
+    }
+    
+    /**
+     * <p>
+     * Everyone, in ID order, as <code>streamPeople(int)</code> with the
+     * fetch size from <code>-Dscheduleapp.db.fetchSize</code> (default
+     * 500).</p>
+     */
+    public Stream<Person> streamPeople() {
+        return streamPeople(FETCH_SIZE);
+    }
+    
+    /**
+     * <p>
+     * Everyone, in ID order, read straight from <code>PERSON</code> as the
+     * stream is consumed, <code>fetchSize</code> rows at a time, so exports
+     * of any size run in constant memory.  The statement and connection are
+     * released when the stream is used up, fails, or is closed; a stream
+     * that may be abandoned part way must be closed:</p>
+     *
+     * <pre>
+     * try (Stream&lt;Person&gt; people = personDAO.streamPeople(1000)) {
+     *     people.forEach(writer::write);
+     * }
+     * </pre>
+     */
+    public Stream<Person> streamPeople(int fetchSize) {
+        
         PreparedStatement request = null;
         Connection conn = null;
         
-        ArrayList<Person> personList = new ArrayList<>();
-        
         try {
             conn = DBConnectionPool.getPoolConnection();
-            request = conn.prepareStatement(GET_ALL_STMT);
-
-            ResultSet rset = request.executeQuery();
+            request = conn.prepareStatement(STREAM_STMT,
+                                            ResultSet.TYPE_FORWARD_ONLY,
+                                            ResultSet.CONCUR_READ_ONLY);
+            request.setFetchSize(Math.max(fetchSize, 0));
             
-            while (rset.next()) {
-                int id = rset.getInt("id");
-                
-                String firstName = rset.getString("first_name");
-                String lastName = rset.getString("last_name");
-                int rank = rset.getInt("rank_id");
-                int skill = rset.getInt("skill_id");
-                int workcenter = rset.getInt("workcenter_id");
-                
-                
-                logger.fine(String.format("PersonDAO_New.getPeopleByShift()\n"
-                                + "rank: %s\nskill: %s", rank, skill));
-
-                //  TODO:  Fix this:
-                Person person = new Person(firstName, lastName,
-                                           rank, workcenter, skill);
-                person.setObjectID(id);
-                
-                logger.fine(String.format("PersonDAO_New.getPeopleByShift()\n"
-                                + "person.rank: %s\n\"person.skill: %s",
-                                person.getRank(), person.getSkill()));
-
-                personList.add(person);
-            }
-
-            logger.log(Level.FINE, "Test Point A");
+            PersonCursor cursor =
+                    new PersonCursor(conn, request, request.executeQuery());
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
             
-            return personList;
-
         } catch (SQLException se) {
+            PersonCursor.close(conn, request);
             throw new RuntimeException(
-                    "[PersonDAO_New.getPeopleByShift()] A database error occurred. " + se.getMessage());
-        } catch (Exception e) {
-            throw new RuntimeException("Exception: " + e.getMessage());
-        } finally {
+                    "A database error occurred. " + se.getMessage());
+        }
+    }
+    private static final String STREAM_STMT = PERSON_SELECT
+            + "ORDER BY person.id";
+    
+    private static final int FETCH_SIZE =
+            Integer.getInteger("scheduleapp.db.fetchSize", 500);
+    
+    /**
+     * <p>
+     * One open <code>PERSON</code> query, read a row at a time by
+     * <code>streamPeople()</code>.  Closes itself after the last row or a
+     * failure; <code>close()</code> can be called any number of times.</p>
+     */
+    private static final class PersonCursor
+            extends Spliterators.AbstractSpliterator<Person> {
+        
+        private Connection conn;
+        private PreparedStatement request;
+        private final ResultSet rset;
+        
+        PersonCursor(Connection conn, PreparedStatement request,
+                     ResultSet rset) {
+            super(Long.MAX_VALUE, ORDERED | DISTINCT | NONNULL);
+            this.conn = conn;
+            this.request = request;
+            this.rset = rset;
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super Person> action) {
+            if (request == null) {
+                return false;
+            }
+            Person person;
+            try {
+                if (!rset.next()) {
+                    close();
+                    return false;
+                }
+                person = readPerson(rset);
+            } catch (SQLException se) {
+                close();
+                throw new RuntimeException(
+                        "A database error occurred. " + se.getMessage());
+            }
+            action.accept(person);
+            return true;
+        }
+        
+        void close() {
+            close(conn, request);
+            conn = null;
+            request = null;
+        }
+        
+        static void close(Connection conn, PreparedStatement request) {
             if (request != null) {
                 try {
                     request.close();
@@ -319,11 +401,33 @@ public class PersonDAO {
                 }
             }
         }
-
-//        return null;
     }
-    private static final String GET_ALL_STMT = "SELECT * FROM person";
     
+    /**
+     * <p>
+     * The people who match <code>filter</code>, in ID order.  Answered
+     * from <code>FilterIndex</code> bitmaps over <code>RosterStore</code>;
+     * no query.</p>
+     */
+    public ArrayList<Person> getPeople(RosterFilter filter) {
+        FilterIndex index = FilterIndex.get();
+        RosterStore.Snapshot roster = index.getRoster();
+        BitSet rows = index.select(filter);
+        
+        ArrayList<Person> personList = new ArrayList<>(rows.cardinality());
+        for (int row = rows.nextSetBit(0); row >= 0;
+             row = rows.nextSetBit(row + 1)) {
+            personList.add(roster.toPerson(row));
+        }
+        return personList;
+    }
+    
+    /**
+     * <p>
+     * The people of a workcenter who work <code>shift</code> on
+     * <code>date</code>, in ID order; a <code>shift</code> or
+     * <code>workcenter</code> less than 1 matches all.</p>
+     */
     public ArrayList<Person> getPeopleArrayListByShift(int shift,
                                                        int workcenter,
                                                        LocalDate date) {
@@ -331,86 +435,11 @@ public class PersonDAO {
                 + "  shift      = " + shift + "\n"
                 + "  workcenter = " + workcenter + "\n"
                 + "  date       = " + date + "\n");
-      PreparedStatement request = null;
-      Connection conn = null;
-      if (date == null) date = LocalDate.now();
       
-      ObservableList<Person> personData = null;
-      ArrayList<Person> personList = new ArrayList<>();
-      
-      try {
-          conn = DBConnectionPool.getPoolConnection();
-          request = conn.prepareStatement(GET_BY_SHIFT_STMT);
-          
-          if (workcenter >= 1)
-              request.setInt(1, workcenter);
-          else
-              request.setString(1, "%");
-
-          ResultSet rset = request.executeQuery();
-          ShiftDateDAO shiftDateDao = new ShiftDateDAO();
-          
-          while (rset.next()) {
-              int id = rset.getInt("id");
-              int shift_id = shiftDateDao.getCurrentShift(id, date);
-              
-              //  DEBUG:
-              logger.fine("shift_id = " + shift_id + "\n");
-              
-              if (shift >= 1 && shift_id != shift) {
-                  continue;
-              }
-              
-              String firstName = rset.getString("first_name");
-              String lastName = rset.getString("last_name");
-              int rank_id = rset.getInt("rank_id");
-              int skill_id = rset.getInt("skill_id");
-              int workcenter_id = rset.getInt("workcenter_id");
-              
-              logger.log(Level.FINE,
-                  String.format("PersonDAO_New.getPeopleByShift()\n"
-                              + "rank: %s\nskill: %s", rank_id, skill_id));
-
-              //  TODO:  Fix this:
-              Person person = new Person(firstName, lastName,
-                                         rank_id,   workcenter_id, skill_id);
-              person.setObjectID(id);
-              
-              logger.log(Level.FINE,
-                  String.format("PersonDAO.getPeopleByShift()\n"
-                              + "person.rank: %s\n\"person.skill: %s",
-                              person.getRank(), person.getSkill()));
-
-              personList.add(person);
-          }
-          
-          logger.log(Level.FINE, String.format("Test Point A"));
-          
-          return personList;
-
-      } catch (SQLException se) {
-          throw new RuntimeException(
-                  "[PersonDAO_New.getPeopleByShift()] A database error occurred. " + se.getMessage());
-      } catch (Exception e) {
-          throw new RuntimeException("Exception: " + e.getMessage());
-      } finally {
-          if (request != null) {
-              try {
-                  request.close();
-              } catch (SQLException se) {
-                  se.printStackTrace(System.err);
-              }
-          }
-          if (conn != null) {
-              try {
-                  conn.close();
-              } catch (Exception e) {
-                  e.printStackTrace(System.err);
-              }
-          }
-      }
-
-//        return null;
+      RosterFilter filter = new RosterFilter();
+      filter.setWorkcenters(workcenter);
+      filter.setShifts(date, shift);
+      return getPeople(filter);
     }
     
     public ArrayList<Person> getPeopleArrayListByShift(int shift,
@@ -428,9 +457,6 @@ public class PersonDAO {
                                                           LocalDate date) {
         return FXCollections.observableList(getPeopleArrayListByShift(shift, workcenter, date));
     }
-    private static final String GET_BY_SHIFT_STMT = "SELECT * FROM person "
-            + "WHERE CAST (workcenter_id AS CHAR) LIKE ?";
-    
    /**
     * Depreciated
     * @param workcenter
@@ -526,6 +552,7 @@ public class PersonDAO {
             stmt.setInt(7, person.getSkillID());
             stmt.executeUpdate();
             person.setObjectID(personID);
+            recordAfterCommit(person);
             
             //  DEBUG:
             logger.log(Level.FINE, String.format("insert() successful."));
@@ -533,7 +560,7 @@ public class PersonDAO {
             throw new RuntimeException(
                     "A database error occurred. " + se.getMessage());
         } catch (Exception e) {
-          logger.log(Level.FINE, String.format("insert() ~ Exception: %s", e.getMessage()));
+            throw new RuntimeException("Exception: " + e.getMessage());
         } finally {
             if (stmt != null) {
                 try {
@@ -558,11 +585,18 @@ public class PersonDAO {
     }  //  end method insert()
     
     /**
-     * TODO:  Need to add Rank, Skill, Work Center
+     * <p>
+     * Inserts the person and their start date in one
+     * <code>UnitOfWork</code>: one connection, one commit, and nothing
+     * saved if either insert fails (or there is no start date).</p>
      * 
      * @param fn
      * @param ln
-     * @param ph
+     * @param rank
+     * @param workcenter
+     * @param shift
+     * @param skill
+     * @param startDate
      * @return 
      */
     public boolean addPerson(String  fn,    String ln,
@@ -576,8 +610,16 @@ public class PersonDAO {
             return false;
         }
         
-        insert(person);
-        (new ShiftDateDAO()).addStartDate(person, startDate);
+        try (UnitOfWork unit = UnitOfWork.begin()) {
+            insert(person);
+            if (!(new ShiftDateDAO()).addStartDate(person, startDate)) {
+                return false;  //  closing the unit rolls back the insert
+            }
+            unit.commit();
+        } catch (SQLException se) {
+            throw new RuntimeException(
+                    "A database error occurred. " + se.getMessage());
+        }
 
         return true;
     }  // end method addPerson()
@@ -603,6 +645,7 @@ public class PersonDAO {
             stmt.setInt(6, person.getSkillID());
             stmt.setInt(7, person.getObjectID());
             stmt.executeUpdate();
+            recordAfterCommit(person);
 
         } catch (SQLException se) {
             throw new RuntimeException(
@@ -627,6 +670,29 @@ public class PersonDAO {
         }
     }
     
+    /**
+     * <p>
+     * Copies the person into <code>RosterStore</code>, and drops the
+     * <code>WeekGridCache</code> weeks they appear in, once the current
+     * work is committed.</p>
+     */
+    private static void recordAfterCommit(Person person) {
+        int id = person.getObjectID();
+        String firstName = person.getFirstName();
+        String lastName = person.getLastName();
+        int rankID = person.getRankID();
+        int workcenterID = person.getWorkcenterID();
+        int shiftID = person.getShiftID();
+        int skillID = person.getSkillID();
+        
+        UnitOfWork.afterCommit(() -> {
+            int[] before = WeekGridCache.workcenterOf(id);
+            RosterStore.record(id, firstName, lastName, rankID, workcenterID,
+                               shiftID, skillID);
+            WeekGridCache.personChanged(before, workcenterID);
+        });
+    }
+    
     public boolean updatePerson(Person person) {
         if (person == null) {
             return false;
@@ -7,6 +7,12 @@
  * 
  * 2016-03-26 : Removed unused imports and grouped remaining imports by root package
  * 2016-03-26 : Included the event type identifier in the `StringProperties` returned by `getWeek()`
+ * 
+ * 2026-10-18 : Added `getEventsForRange()`, which does the date overlap test in SQL and loads many people in one query
+ * 2026-10-18 : Replaced the per-day `getEvent()` with `getEventsForRange()` in `getWeekEvents()`
+ * 2026-10-18 : `getEventsForRange()` now reads the in-memory `EventIndex` instead of querying PERSON_EVENT
+ * 2026-10-18 : Added `insert()` and `remove()`, which keep `EventIndex` current once their change is committed
+ * 2026-10-18 : `insert()` and `remove()` drop the affected `WeekGridCache` weeks once committed
  */
 
 /**
@@ -17,9 +23,13 @@ package domain;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Time;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import javafx.beans.property.SimpleStringProperty;
@@ -28,6 +38,7 @@ import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 import util.DBConnectionPool;
+import util.UnitOfWork;
 
 public class PersonEventDAO {
   
@@ -37,15 +48,11 @@ public class PersonEventDAO {
   private ObservableList<ObservableList<StringProperty>>
     getWeekEvents(int person_id, LocalDate firstDay) {
       
-    ObservableList<ObservableList<StringProperty>> weekEventsDescriptions =
-        FXCollections.observableArrayList();
-    
-    for (int x = 0; x < 7; x++) {
-      LocalDate date = firstDay.plusDays(x);
-      weekEventsDescriptions.add( getEvent(person_id, date) );
-    }
+    ArrayList<Integer> personIds = new ArrayList<>();
+    personIds.add(person_id);
 
-    return weekEventsDescriptions;
+    return getEventsForRange(personIds, firstDay, firstDay.plusDays(6))
+        .get(person_id);
   }  // end getWeek(Person, LocalDate)
   
   public ObservableList<ObservableList<StringProperty>>
@@ -55,69 +62,113 @@ public class PersonEventDAO {
     return getWeekEvents(person_id, firstDay);
   }  // end getWeekShifts(Person, LocalDate)
   
-  private ObservableList<StringProperty> getEvent(int person_id,
-                                     /*int shift_id,*/
-                                     LocalDate date) {
-    PreparedStatement request = null;
+  /**
+   * <p>
+   * Finds the events of several people that overlap <code>from</code>
+   * through <code>to</code> (inclusive), and buckets their descriptions by
+   * day in the same shape <code>getWeekEvents()</code> returns: one list per
+   * day, each holding <code>"[Type] description"</code> entries, in start
+   * date order.</p>
+   *
+   * <p>
+   * Reads <code>EventIndex</code>, one O(log n + k) interval search per
+   * person.</p>
+   *
+   * @param personIds
+   * @param from
+   * @param to
+   * @return each person's per-day event descriptions, keyed by person ID, in
+   *         the same order as <code>personIds</code>
+   */
+  public Map<Integer, ObservableList<ObservableList<StringProperty>>>
+    getEventsForRange(Collection<Integer> personIds,
+                      LocalDate from, LocalDate to) {
+
+    long first = from.toEpochDay();
+    long last = to.toEpochDay();
+    int days = (int) (last - first) + 1;
+    Map<Integer, ObservableList<ObservableList<StringProperty>>> events =
+        new LinkedHashMap<>();
+    Map<Integer, String> eventTypes = (days > 0 && !personIds.isEmpty())
+        ? (new PersonEventTypeDAO()).getMap() : null;
+
+    for (Integer personId : personIds) {
+      ObservableList<ObservableList<StringProperty>> week =
+          FXCollections.observableArrayList();
+      for (int x = 0; x < days; x++) {
+        week.add(FXCollections.observableArrayList());
+      }
+      events.put(personId, week);
+
+      if (days > 0) {
+        EventIndex.overlapping(personId, first, last,
+            (eventId, startDay, endDay, typeId, description) -> {
+              String entry = "[" + eventTypes.get(typeId) + "] " + description;
+              for (long x = Math.max(startDay, first);
+                   x <= Math.min(endDay, last); x++) {
+                week.get((int) (x - first))
+                    .add(new SimpleStringProperty(entry));
+              }
+            });
+      }
+    }
+
+    return events;
+  }
+
+  /**
+   * <p>
+   * Adds an event to <code>PERSON_EVENT</code>.</p>
+   *
+   * @param person_id
+   * @param event_type_id
+   * @param startDate
+   * @param startTime
+   * @param endDate
+   * @param endTime
+   * @param description
+   * @return the new event's ID
+   */
+  public int insert(int person_id, int event_type_id,
+                    Date startDate, Time startTime,
+                    Date endDate, Time endTime, String description) {
     Connection conn = null;
-    
-    LocalDate yesterday = date.minusDays(1);
-    LocalDate tomorrow = date.plusDays(1);
-    
+    PreparedStatement stmt = null;
+
     try {
       conn = DBConnectionPool.getPoolConnection();
-      request = conn.prepareStatement(GET_STMT);
-      request.setInt(1, person_id);
+      stmt = conn.prepareStatement(INSERT_STMT);
 
-      ResultSet rset = request.executeQuery();
+      int eventId = (new ObjectIdDAO())
+          .getNextObjectId(ObjectIdDAO.PERSON_EVENT);
+      stmt.setInt(1, eventId);
+      stmt.setDate(2, startDate);
+      stmt.setTime(3, startTime);
+      stmt.setDate(4, endDate);
+      stmt.setTime(5, endTime);
+      stmt.setString(6, description);
+      stmt.setInt(7, event_type_id);
+      stmt.setInt(8, person_id);
+      stmt.executeUpdate();
+
+      long startDay = startDate.toLocalDate().toEpochDay();
+      long endDay = endDate.toLocalDate().toEpochDay();
+      UnitOfWork.afterCommit(() -> {
+        EventIndex.record(eventId, person_id, startDay, endDay, event_type_id,
+                          description);
+        WeekGridCache.eventsChanged(person_id, startDay, endDay);
+      });
+      return eventId;
 
-      //   Find the events that:
-      //       A) Starts on or before today
-      //       B) Ends on or after today
-      //   The above two conditions will yield a valid event.
-      ObservableList<StringProperty> descriptions =
-          FXCollections.observableArrayList();
-      PersonEventTypeDAO personEventTypeDao = new PersonEventTypeDAO();
-      
-      while (rset.next()) {
-        Date tempStartDate = rset.getDate("start_date");
-        Date tempEndDate = rset.getDate("end_date");
-        
-        logger.fine("id = " + rset.getInt("id") +
-                   "\n      start_date = " + tempStartDate + 
-                   "\n      end_date = "   + tempEndDate);
-        
-        String description;
-
-        LocalDate tempStartLocalDate = tempStartDate.toLocalDate();
-        LocalDate tempEndLocalDate = tempEndDate.toLocalDate();
-        
-        if (tempStartLocalDate.isBefore(tomorrow)
-            && tempEndLocalDate.isAfter(yesterday)) {
-          int eventType = rset.getInt("person_event_type_id");
-          description = "[" + personEventTypeDao.getMap().get(eventType) + "] ";
-          description += rset.getString("description");
-          
-//          if (shift_id < 1) {
-//            descriptions.add(description);
-//          }
-          
-          descriptions.add(new SimpleStringProperty(description));
-          
-        }  // check if event includes today
-      }  // loop through person events
-      
-      return descriptions;
-      
     } catch (SQLException se) {
       throw new RuntimeException(
           "A database error occurred. " + se.getMessage());
     } catch (Exception e) {
       throw new RuntimeException("Exception: " + e.getMessage());
     } finally {
-      if (request != null) {
+      if (stmt != null) {
         try {
-          request.close();
+          stmt.close();
         } catch (SQLException se) {
           se.printStackTrace(System.err);
         }
@@ -130,10 +181,63 @@ public class PersonEventDAO {
         }
       }
     }
+  }  //  end method insert()
 
-  }
-  private static final String GET_STMT = "SELECT * "
-                                         + "FROM person_event "
-                                         + "WHERE person_id = ? ";
+  private static final String INSERT_STMT = "INSERT INTO person_event "
+      + "(id, start_date, start_time, end_date, end_time, description, "
+      + "person_event_type_id, person_id) "
+      + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+  /**
+   * <p>
+   * Removes an event from <code>PERSON_EVENT</code>.</p>
+   *
+   * @param person_id the person the event belongs to
+   * @param event_id
+   */
+  public void remove(int person_id, int event_id) {
+    Connection conn = null;
+    PreparedStatement stmt = null;
+
+    try {
+      conn = DBConnectionPool.getPoolConnection();
+      stmt = conn.prepareStatement(REMOVE_STMT);
+      stmt.setInt(1, event_id);
+      stmt.setInt(2, person_id);
+
+      if (stmt.executeUpdate() > 0) {
+        UnitOfWork.afterCommit(() -> {
+          EventIndex.remove(person_id, event_id);
+          WeekGridCache.eventsChanged(person_id, Long.MIN_VALUE,
+                                      Long.MAX_VALUE);
+        });
+      }
+
+    } catch (SQLException se) {
+      throw new RuntimeException(
+          "A database error occurred. " + se.getMessage());
+    } catch (Exception e) {
+      throw new RuntimeException("Exception: " + e.getMessage());
+    } finally {
+      if (stmt != null) {
+        try {
+          stmt.close();
+        } catch (SQLException se) {
+          se.printStackTrace(System.err);
+        }
+      }
+      if (conn != null) {
+        try {
+          conn.close();
+        } catch (Exception e) {
+          e.printStackTrace(System.err);
+        }
+      }
+    }
+  }  //  end method remove()
+
+  private static final String REMOVE_STMT = "DELETE FROM person_event "
+      + "WHERE id = ? "
+      + "AND   person_id = ?";
 
 }
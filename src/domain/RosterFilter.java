@@ -0,0 +1,90 @@
+//  RosterFilter.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, a workcenter/rank/skill/shift filter for PersonDAO.getPeople()
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Which people to list, for <code>PersonDAO.getPeople()</code>.  Each
+ * attribute takes any number of IDs, and a person matches an attribute when
+ * they have any of them; a person must match every attribute that is set.
+ * An attribute that is not set (or set to no IDs) matches everyone.</p>
+ *
+ * <pre>
+ * RosterFilter filter = new RosterFilter();
+ * filter.setWorkcenters(apg, engines);
+ * filter.setSkills(fiveLevel, sevenLevel);
+ * filter.setShifts(today, day);
+ * personDAO.getPeople(filter);
+ * </pre>
+ */
+public class RosterFilter {
+
+  private static final int[] ANY = new int[0];
+
+  private int[] workcenterIds = ANY;
+  private int[] rankIds = ANY;
+  private int[] skillIds = ANY;
+  private int[] shiftIds = ANY;
+  private LocalDate shiftDate;
+
+  public void setWorkcenters(int... workcenterIds) {
+    this.workcenterIds = validIds(workcenterIds);
+  }
+
+  public void setRanks(int... rankIds) {
+    this.rankIds = validIds(rankIds);
+  }
+
+  public void setSkills(int... skillIds) {
+    this.skillIds = validIds(skillIds);
+  }
+
+  /**
+   * <p>
+   * Matches people who work one of the shifts on <code>date</code>, per
+   * <code>SHIFT_DATE</code>.</p>
+   */
+  public void setShifts(LocalDate date, int... shiftIds) {
+    this.shiftDate = date;
+    this.shiftIds = validIds(shiftIds);
+  }
+
+  /**
+   * IDs less than 1 are the filters' "All", so they are dropped.
+   */
+  private static int[] validIds(int[] ids) {
+    return (ids == null) ? ANY
+        : Arrays.stream(ids).filter(id -> id >= 1).distinct().toArray();
+  }
+
+  int[] getWorkcenterIds() {
+    return workcenterIds;
+  }
+
+  int[] getRankIds() {
+    return rankIds;
+  }
+
+  int[] getSkillIds() {
+    return skillIds;
+  }
+
+  int[] getShiftIds() {
+    return shiftIds;
+  }
+
+  LocalDate getShiftDate() {
+    return (shiftDate == null) ? LocalDate.now() : shiftDate;
+  }
+}
@@ -0,0 +1,415 @@
+//  RosterImporter.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, bulk import of people and start dates from CSV with batched, chunked inserts
+ * 2026-10-18 : Imported start dates are added to ShiftTimeline once each chunk commits
+ * 2026-10-18 : Imported people are added to RosterStore once each chunk commits
+ * 2026-10-18 : Clears WeekGridCache once an import is committed
+ * 2026-10-18 : The header is recognized on the first non-blank line, after any byte order mark; index updates are registered only after both batches succeed
+ * 2026-10-18 : A quoted field may span lines; the row is read on until its quotes are closed
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import domain.LookupCache.Lookup;
+import util.UnitOfWork;
+
+/**
+ * <p>
+ * Adds many people at once, e.g. a whole squadron from a CSV file.  Each
+ * row is checked against the cached rank, workcenter, shift and skill
+ * names; rows that fail are reported with their line number and skipped.
+ * Valid rows are written in chunks of <code>CHUNK_SIZE</code>: IDs for the
+ * chunk are reserved in one block, and the <code>person</code> and
+ * <code>shift_date</code> rows go in as two JDBC batches in one
+ * <code>UnitOfWork</code>.  A chunk that fails is rolled back as a whole
+ * and every row in it is reported.</p>
+ *
+ * <p>
+ * CSV columns, with an optional header line:</p>
+ *
+ * <pre>
+ * first_name,last_name,rank,workcenter,shift,skill[,start_date]
+ * Jane,Doe,SrA,APG,Day,5,2026-10-01
+ * </pre>
+ *
+ * <p>
+ * Names match case-insensitively; <code>start_date</code> is
+ * <code>yyyy-MM-dd</code> and defaults to today.  A field in double quotes
+ * may hold commas, doubled quotes (<code>""</code>) and line breaks, as
+ * Excel writes them; errors give the line the row starts on.</p>
+ */
+public class RosterImporter {
+
+  private static final Logger logger =
+      Logger.getLogger(RosterImporter.class.getName());
+
+  static final int CHUNK_SIZE = 1_000;
+  private static final int NAME_SIZE = 20;
+
+  /**
+   * <p>
+   * Called after each chunk with the number of rows handled so far
+   * (imported or rejected) and the total.</p>
+   */
+  public interface ProgressListener {
+    void progress(int done, int total);
+  }
+
+  private final ObjectIdDAO objectIdDAO = new ObjectIdDAO();
+
+  /**
+   * <p>
+   * Reads the whole CSV and imports it.</p>
+   *
+   * @param reader   CSV input; not closed
+   * @param listener progress callback, or <code>null</code>
+   * @return rows imported and per-row errors
+   * @throws IOException if the input cannot be read
+   */
+  public Result importCsv(Reader reader, ProgressListener listener)
+      throws IOException {
+    List<Row> rows = new ArrayList<>();
+    BufferedReader lines = new BufferedReader(reader);
+    String line;
+    int lineNumber = 0;
+    boolean first = true;
+
+    while ((line = lines.readLine()) != null) {
+      lineNumber++;
+      if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+        line = line.substring(1);  // byte order mark, as Excel writes
+      }
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      int rowLine = lineNumber;
+      StringBuilder record = new StringBuilder(line);
+      while (quoteOpen(record) && (line = lines.readLine()) != null) {
+        lineNumber++;
+        record.append('\n').append(line);
+      }
+      List<String> fields = parseCsvLine(record.toString());
+      if (first) {
+        first = false;
+        if (fields.get(0).trim().replace(' ', '_')
+            .equalsIgnoreCase("first_name")) {
+          continue;
+        }
+      }
+      rows.add(new Row(rowLine, fields));
+    }
+
+    return importRows(rows, listener);
+  }
+
+  private Result importRows(List<Row> rows, ProgressListener listener) {
+    Result result = new Result();
+    Map<String, Integer> ranks = byName(Lookup.RANK);
+    Map<String, Integer> workcenters = byName(Lookup.WORKCENTER);
+    Map<String, Integer> shifts = byName(Lookup.SHIFT);
+    Map<String, Integer> skills = byName(Lookup.SKILL);
+    LocalDate today = LocalDate.now();
+    long started = System.nanoTime();
+
+    for (int from = 0; from < rows.size(); from += CHUNK_SIZE) {
+      List<Row> chunk = rows.subList(from, Math.min(rows.size(),
+                                                    from + CHUNK_SIZE));
+      List<Row> valid = new ArrayList<>(chunk.size());
+
+      for (Row row : chunk) {
+        String error = row.validate(ranks, workcenters, shifts, skills, today);
+        if (error == null) {
+          valid.add(row);
+        } else {
+          result.errors.add(new RowError(row.line, error));
+        }
+      }
+
+      if (!valid.isEmpty()) {
+        try {
+          insertChunk(valid);
+          result.imported += valid.size();
+        } catch (SQLException | RuntimeException e) {
+          for (Row row : valid) {
+            result.errors.add(new RowError(row.line,
+                "Not saved, the database rejected this batch: "
+                + e.getMessage()));
+          }
+        }
+      }
+
+      if (listener != null) {
+        listener.progress(from + chunk.size(), rows.size());
+      }
+    }
+
+    result.errors.sort((a, b) -> Integer.compare(a.line, b.line));
+    logger.info(String.format("Imported %d people (%d rows rejected) in %d ms",
+                              result.imported, result.errors.size(),
+                              (System.nanoTime() - started) / 1_000_000));
+    return result;
+  }
+
+  private void insertChunk(List<Row> rows) throws SQLException {
+    int personId = objectIdDAO.reserveBlock(ObjectIdDAO.PERSON, rows.size());
+    int shiftDateId =
+        objectIdDAO.reserveBlock(ObjectIdDAO.SHIFT_DATE, rows.size());
+
+    int firstPersonId = personId;
+
+    try (UnitOfWork unit = UnitOfWork.begin()) {
+      Connection conn = unit.getConnection();
+      try (PreparedStatement personStmt = conn.prepareStatement(INSERT_PERSON);
+           PreparedStatement shiftStmt =
+               conn.prepareStatement(INSERT_SHIFT_DATE)) {
+
+        for (Row row : rows) {
+          personStmt.setInt(1, personId);
+          personStmt.setString(2, row.firstName);
+          personStmt.setString(3, row.lastName);
+          personStmt.setInt(4, row.rankId);
+          personStmt.setInt(5, row.workcenterId);
+          personStmt.setInt(6, row.shiftId);
+          personStmt.setInt(7, row.skillId);
+          personStmt.addBatch();
+
+          shiftStmt.setInt(1, shiftDateId++);
+          shiftStmt.setInt(2, personId);
+          shiftStmt.setDate(3, Date.valueOf(row.startDate));
+          shiftStmt.setInt(4, row.shiftId);
+          shiftStmt.addBatch();
+          personId++;
+        }
+
+        personStmt.executeBatch();
+        shiftStmt.executeBatch();
+      }
+
+      //  Registered only once both batches are in, so a failed batch leaves
+      //  nothing behind (the unit rolls back and drops these anyway)
+      int id = firstPersonId;
+      for (Row row : rows) {
+        int rowId = id++;
+        UnitOfWork.afterCommit(() -> {
+          RosterStore.record(rowId, row.firstName, row.lastName, row.rankId,
+                             row.workcenterId, row.shiftId, row.skillId);
+          ShiftTimeline.record(rowId, row.startDate.toEpochDay(),
+                               row.shiftId);
+        });
+      }
+      UnitOfWork.afterCommit(WeekGridCache::invalidate);
+      unit.commit();
+    }
+  }
+
+  private static Map<String, Integer> byName(Lookup lookup) {
+    LookupCache.Table table = LookupCache.get(lookup);
+    if (table == null) {
+      throw new RuntimeException("Could not read the " + lookup
+                                 + " table.");
+    }
+    Map<String, Integer> byName = new HashMap<>();
+    for (Map.Entry<String, Integer> entry
+         : table.getMapReversed().entrySet()) {
+      byName.put(entry.getKey().toUpperCase(), entry.getValue());
+    }
+    return byName;
+  }
+
+  /**
+   * <p>
+   * Splits one CSV line; fields may be quoted, with <code>""</code> for a
+   * quote inside a quoted field.</p>
+   */
+  /**
+   * Whether <code>text</code> ends inside a quoted field: an odd number of
+   * quotes, since an escaped quote is two.
+   */
+  private static boolean quoteOpen(CharSequence text) {
+    boolean open = false;
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) == '"') {
+        open = !open;
+      }
+    }
+    return open;
+  }
+
+  static List<String> parseCsvLine(String line) {
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  private static final class Row {
+    final int line;
+    final List<String> fields;
+
+    String firstName;
+    String lastName;
+    int rankId;
+    int workcenterId;
+    int shiftId;
+    int skillId;
+    LocalDate startDate;
+
+    Row(int line, List<String> fields) {
+      this.line = line;
+      this.fields = fields;
+    }
+
+    /**
+     * @return the problem with this row, or <code>null</code> if it can be
+     *         imported
+     */
+    String validate(Map<String, Integer> ranks,
+                    Map<String, Integer> workcenters,
+                    Map<String, Integer> shifts,
+                    Map<String, Integer> skills,
+                    LocalDate today) {
+      if (fields.size() < 6 || fields.size() > 7) {
+        return "Expected 6 or 7 columns, found " + fields.size();
+      }
+
+      firstName = field(0);
+      lastName = field(1);
+      if (firstName.isEmpty() || lastName.isEmpty()) {
+        return "First and last name are required";
+      }
+      if (firstName.length() > NAME_SIZE || lastName.length() > NAME_SIZE) {
+        return "Names are limited to " + NAME_SIZE + " characters";
+      }
+
+      Integer rank = ranks.get(field(2).toUpperCase());
+      Integer workcenter = workcenters.get(field(3).toUpperCase());
+      Integer shift = shifts.get(field(4).toUpperCase());
+      Integer skill = skills.get(field(5).toUpperCase());
+      if (rank == null) {
+        return "Unknown rank '" + field(2) + "'";
+      }
+      if (workcenter == null) {
+        return "Unknown workcenter '" + field(3) + "'";
+      }
+      if (shift == null) {
+        return "Unknown shift '" + field(4) + "'";
+      }
+      if (skill == null) {
+        return "Unknown skill level '" + field(5) + "'";
+      }
+      rankId = rank;
+      workcenterId = workcenter;
+      shiftId = shift;
+      skillId = skill;
+
+      if (fields.size() == 7 && !field(6).isEmpty()) {
+        try {
+          startDate = LocalDate.parse(field(6));
+        } catch (DateTimeParseException dtpe) {
+          return "Start date '" + field(6) + "' is not yyyy-MM-dd";
+        }
+      } else {
+        startDate = today;
+      }
+      return null;
+    }
+
+    private String field(int index) {
+      return fields.get(index).trim();
+    }
+  }
+
+  /**
+   * <p>
+   * One rejected row.</p>
+   */
+  public static final class RowError {
+    private final int line;
+    private final String message;
+
+    RowError(int line, String message) {
+      this.line = line;
+      this.message = message;
+    }
+
+    public int getLine() {
+      return line;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String toString() {
+      return "Line " + line + ": " + message;
+    }
+  }
+
+  /**
+   * <p>
+   * Outcome of one import.</p>
+   */
+  public static final class Result {
+    private int imported;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public int getImported() {
+      return imported;
+    }
+
+    public List<RowError> getErrors() {
+      return Collections.unmodifiableList(errors);
+    }
+  }
+
+  private static final String INSERT_PERSON
+      = "INSERT INTO person (id, first_name, last_name, rank_id, "
+      + "workcenter_id, shift_id, skill_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+  private static final String INSERT_SHIFT_DATE
+      = "INSERT INTO shift_date (id, person_id, change_date, shift_id) "
+      + "VALUES (?, ?, ?, ?)";
+}
@@ -0,0 +1,418 @@
+//  RosterStore.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, the PERSON table held in memory as parallel primitive columns
+ * 2026-10-18 : Added Snapshot.rowAfter() for keyset pages
+ * 2026-10-18 : invalidate() is called by Caches.refresh(), so other clients' changes can be seen
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import util.DBConnectionPool;
+
+/**
+ * <p>
+ * The <code>PERSON</code> table, read once and held as parallel
+ * <code>int</code> columns in person ID order: ID, rank, workcenter, shift,
+ * skill, and first and last names as indexes into one table of interned
+ * strings.  <code>PersonDAO</code> and <code>RosterImporter</code> keep it
+ * current through <code>record()</code> and <code>remove()</code> once their
+ * changes are committed.</p>
+ *
+ * <p>
+ * Readers take a <code>Snapshot</code>, which never changes.  Adding a
+ * person with a new highest ID writes into spare capacity past the end of
+ * the columns and publishes a longer snapshot over the same arrays; updates
+ * and deletes copy the columns.  So readers need no lock, and a bulk import
+ * costs amortized O(1) per person.</p>
+ *
+ * <p>
+ * Changes made by other clients of a shared database are not seen until
+ * <code>Caches.refresh()</code> calls <code>invalidate()</code>.</p>
+ */
+final class RosterStore {
+
+  private static final Logger logger =
+      Logger.getLogger(RosterStore.class.getName());
+
+  private static volatile Snapshot current;
+
+  //  Interned names; guarded by the class lock.  Snapshots share the array
+  //  and only read indexes they were built with.
+  private static String[] names = new String[256];
+  private static int nameCount;
+  private static final Map<String, Integer> nameIndex = new HashMap<>();
+
+  private RosterStore() { }
+
+  /**
+   * <p>
+   * The roster as it is now, loading it on first use.</p>
+   */
+  static Snapshot get() {
+    Snapshot snapshot = current;
+    return (snapshot != null) ? snapshot : load();
+  }
+
+  /**
+   * <p>
+   * Adds a committed person, or replaces them if their ID is already
+   * there.</p>
+   */
+  static synchronized void record(int id, String firstName, String lastName,
+                                  int rankId, int workcenterId, int shiftId,
+                                  int skillId) {
+    Snapshot snapshot = current;
+    if (snapshot == null) {
+      return;  // not loaded yet; the load will read the new row
+    }
+    int first = intern(firstName);
+    int last = intern(lastName);
+    int row = snapshot.row(id);
+
+    if (row >= 0) {
+      Snapshot copy = snapshot.copy(snapshot.size, snapshot.rowById);
+      copy.set(row, id, first, last, rankId, workcenterId, shiftId, skillId);
+      current = copy;
+      return;
+    }
+
+    int size = snapshot.size;
+    if (size == 0 || id > snapshot.ids[size - 1]) {
+      //  Append: the common case, since IDs only grow
+      Snapshot longer = (size < snapshot.ids.length)
+          ? snapshot.share(size + 1) : snapshot.copy(size * 2 + 16, null)
+                                               .share(size + 1);
+      longer.set(size, id, first, last, rankId, workcenterId, shiftId,
+                 skillId);
+      current = longer.mapId(id, size);
+      return;
+    }
+
+    //  Out of order: open a gap at the right place
+    int at = -Arrays.binarySearch(snapshot.ids, 0, size, id) - 1;
+    Snapshot copy = snapshot.copy(size + 1, null);
+    copy.shift(at, size, 1);
+    copy.set(at, id, first, last, rankId, workcenterId, shiftId, skillId);
+    current = copy.reindex();
+  }
+
+  /**
+   * <p>
+   * Drops a person, after they are deleted from <code>PERSON</code>.</p>
+   */
+  static synchronized void remove(int id) {
+    Snapshot snapshot = current;
+    if (snapshot == null) {
+      return;
+    }
+    int row = snapshot.row(id);
+    if (row < 0) {
+      return;
+    }
+    Snapshot copy = snapshot.copy(snapshot.size, null);
+    copy.shift(row + 1, snapshot.size, -1);
+    current = copy.share(snapshot.size - 1).reindex();
+  }
+
+  /**
+   * <p>
+   * Forgets everything; the table is read again on next use.</p>
+   */
+  static synchronized void invalidate() {
+    current = null;
+  }
+
+  private static int intern(String name) {
+    Integer index = nameIndex.get(name);
+    if (index != null) {
+      return index;
+    }
+    if (nameCount == names.length) {
+      names = Arrays.copyOf(names, nameCount * 2);
+    }
+    names[nameCount] = name;
+    nameIndex.put(name, nameCount);
+    return nameCount++;
+  }
+
+  private static synchronized Snapshot load() {
+    if (current != null) {
+      return current;
+    }
+
+    PreparedStatement request = null;
+    Connection conn = null;
+    Snapshot loaded = new Snapshot(0, 256);
+    long started = System.nanoTime();
+
+    try {
+      conn = DBConnectionPool.getPoolConnection();
+      request = conn.prepareStatement(LOAD_STMT);
+      ResultSet rset = request.executeQuery();
+
+      int size = 0;
+      while (rset.next()) {
+        int first = intern(rset.getString("first_name"));
+        int last = intern(rset.getString("last_name"));
+        if (size == loaded.ids.length) {
+          loaded = loaded.copy(size * 2, null);
+        }
+        loaded = loaded.share(size + 1);
+        loaded.set(size, rset.getInt("id"), first, last,
+                   rset.getInt("rank_id"), rset.getInt("workcenter_id"),
+                   rset.getInt("shift_id"), rset.getInt("skill_id"));
+        size++;
+      }
+      loaded = loaded.reindex();
+
+    } catch (SQLException se) {
+      throw new RuntimeException(
+          "A database error occurred. " + se.getMessage());
+    } catch (Exception e) {
+      throw new RuntimeException("Exception: " + e.getMessage());
+    } finally {
+      if (request != null) {
+        try {
+          request.close();
+        } catch (SQLException se) {
+          se.printStackTrace(System.err);
+        }
+      }
+      if (conn != null) {
+        try {
+          conn.close();
+        } catch (Exception e) {
+          e.printStackTrace(System.err);
+        }
+      }
+    }
+
+    logger.fine(String.format("Loaded %d people in %d ms", loaded.size,
+                              (System.nanoTime() - started) / 1_000_000));
+    current = loaded;
+    return loaded;
+  }
+
+  /**
+   * <p>
+   * The roster at one moment.  Rows are in person ID order; row indexes are
+   * only meaningful within the snapshot they came from.</p>
+   */
+  static final class Snapshot {
+    private final int size;
+    private final String[] names;
+    private int[] rowById;
+    private final int[] ids;
+    private final int[] firstNames;
+    private final int[] lastNames;
+    private final int[] rankIds;
+    private final int[] workcenterIds;
+    private final int[] shiftIds;
+    private final int[] skillIds;
+
+    private Snapshot(int size, int capacity) {
+      this(size, RosterStore.names, new int[0], new int[capacity],
+           new int[capacity], new int[capacity], new int[capacity],
+           new int[capacity], new int[capacity], new int[capacity]);
+    }
+
+    private Snapshot(int size, String[] names, int[] rowById, int[] ids,
+                     int[] firstNames, int[] lastNames, int[] rankIds,
+                     int[] workcenterIds, int[] shiftIds, int[] skillIds) {
+      this.size = size;
+      this.names = names;
+      this.rowById = rowById;
+      this.ids = ids;
+      this.firstNames = firstNames;
+      this.lastNames = lastNames;
+      this.rankIds = rankIds;
+      this.workcenterIds = workcenterIds;
+      this.shiftIds = shiftIds;
+      this.skillIds = skillIds;
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * @return the person's row, or <code>-1</code> if they are not in this
+     *         snapshot
+     */
+    int row(int personId) {
+      if (personId < 0 || personId >= rowById.length) {
+        return -1;
+      }
+      int row = rowById[personId];
+      return (row < size) ? row : -1;
+    }
+
+    /**
+     * @return the first row with an ID above <code>personId</code>, or
+     *         <code>size()</code> if there is none
+     */
+    int rowAfter(int personId) {
+      int at = Arrays.binarySearch(ids, 0, size, personId);
+      return (at >= 0) ? at + 1 : -at - 1;
+    }
+
+    int id(int row) {
+      return ids[row];
+    }
+
+    String firstName(int row) {
+      return names[firstNames[row]];
+    }
+
+    String lastName(int row) {
+      return names[lastNames[row]];
+    }
+
+    int rankId(int row) {
+      return rankIds[row];
+    }
+
+    int workcenterId(int row) {
+      return workcenterIds[row];
+    }
+
+    /** The shift in <code>PERSON.shift_id</code>, not the shift on a date. */
+    int shiftId(int row) {
+      return shiftIds[row];
+    }
+
+    int skillId(int row) {
+      return skillIds[row];
+    }
+
+    /**
+     * <p>
+     * Writes the rows of the people who match every filter into
+     * <code>rows</code>, in ID order, and returns how many there are.  A
+     * filter less than 1 matches everyone; <code>shiftId</code> is matched
+     * against the shift each person works on <code>epochDay</code>, per
+     * <code>ShiftTimeline</code>.</p>
+     *
+     * @param rows at least <code>size()</code> long
+     */
+    int select(int workcenterId, int shiftId, long epochDay, int rankId,
+               int skillId, int[] rows) {
+      int found = 0;
+      for (int row = 0; row < size; row++) {
+        if ((workcenterId < 1 || workcenterIds[row] == workcenterId)
+            && (rankId < 1 || rankIds[row] == rankId)
+            && (skillId < 1 || skillIds[row] == skillId)
+            && (shiftId < 1
+                || ShiftTimeline.shiftOn(ids[row], epochDay) == shiftId)) {
+          rows[found++] = row;
+        }
+      }
+      return found;
+    }
+
+    /**
+     * <p>
+     * Builds a <code>Person</code> for a row, with names from
+     * <code>LookupCache</code>.</p>
+     */
+    Person toPerson(int row) {
+      return new Person(ids[row], firstName(row), lastName(row),
+                        rankIds[row],
+                        name(LookupCache.Lookup.RANK, rankIds[row]),
+                        workcenterIds[row],
+                        name(LookupCache.Lookup.WORKCENTER,
+                             workcenterIds[row]),
+                        shiftIds[row],
+                        name(LookupCache.Lookup.SHIFT, shiftIds[row]),
+                        skillIds[row],
+                        name(LookupCache.Lookup.SKILL, skillIds[row]));
+    }
+
+    private static String name(LookupCache.Lookup lookup, int id) {
+      LookupCache.Table table = LookupCache.get(lookup);
+      return (table == null) ? null : table.getName(id);
+    }
+
+    //  ========================  Writers (locked)  ========================
+
+    private Snapshot share(int newSize) {
+      return new Snapshot(newSize, RosterStore.names, rowById, ids,
+                          firstNames, lastNames, rankIds, workcenterIds,
+                          shiftIds, skillIds);
+    }
+
+    private Snapshot copy(int capacity, int[] keepRowById) {
+      capacity = Math.max(capacity, size);
+      return new Snapshot(size, RosterStore.names,
+                          (keepRowById != null) ? keepRowById : rowById,
+                          Arrays.copyOf(ids, capacity),
+                          Arrays.copyOf(firstNames, capacity),
+                          Arrays.copyOf(lastNames, capacity),
+                          Arrays.copyOf(rankIds, capacity),
+                          Arrays.copyOf(workcenterIds, capacity),
+                          Arrays.copyOf(shiftIds, capacity),
+                          Arrays.copyOf(skillIds, capacity));
+    }
+
+    private void set(int row, int id, int first, int last, int rankId,
+                     int workcenterId, int shiftId, int skillId) {
+      ids[row] = id;
+      firstNames[row] = first;
+      lastNames[row] = last;
+      rankIds[row] = rankId;
+      workcenterIds[row] = workcenterId;
+      shiftIds[row] = shiftId;
+      skillIds[row] = skillId;
+    }
+
+    /** Moves rows [from, to) by <code>offset</code>. */
+    private void shift(int from, int to, int offset) {
+      for (int[] column : new int[][] {ids, firstNames, lastNames, rankIds,
+                                       workcenterIds, shiftIds, skillIds}) {
+        System.arraycopy(column, from, column, from + offset, to - from);
+      }
+    }
+
+    /** Points <code>rowById[id]</code> at <code>row</code>, in place. */
+    private Snapshot mapId(int id, int row) {
+      if (id >= rowById.length) {
+        int[] grown = Arrays.copyOf(rowById,
+                                    Math.max(id + 1, rowById.length * 2));
+        Arrays.fill(grown, rowById.length, grown.length, Integer.MAX_VALUE);
+        rowById = grown;
+      }
+      rowById[id] = row;
+      return this;
+    }
+
+    /** Builds a new <code>rowById</code> for this snapshot alone. */
+    private Snapshot reindex() {
+      int maxId = (size == 0) ? 0 : ids[size - 1];
+      rowById = new int[maxId + 1];
+      Arrays.fill(rowById, Integer.MAX_VALUE);
+      for (int row = 0; row < size; row++) {
+        rowById[ids[row]] = row;
+      }
+      return this;
+    }
+  }
+
+  private static final String LOAD_STMT = "SELECT id, first_name, "
+      + "last_name, rank_id, workcenter_id, shift_id, skill_id "
+      + "FROM person "
+      + "ORDER BY id";
+}
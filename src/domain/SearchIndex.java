@@ -0,0 +1,376 @@
+//  SearchIndex.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, an n-gram index over names, ranks and workcenters for PersonDAO.findPeople()
+ * 2026-10-18 : Added invalidate(), for Caches.refresh()
+ * 2026-10-18 : get() rebuilds in the background after a roster change and serves the previous index meanwhile, instead of rebuilding on the caller's thread
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import domain.LookupCache.Lookup;
+
+/**
+ * <p>
+ * A search index over every person's first name, last name, rank and
+ * workcenter, for typeahead.  Each field is normalized (upper case, accents
+ * removed) and every 1-, 2- and 3-character run in it is indexed, pointing
+ * at the <code>RosterStore</code> rows that contain it.</p>
+ *
+ * <p>
+ * A query is split into terms, and a person matches when every term is
+ * found somewhere in one of their fields.  The candidates for a term come
+ * from its n-gram posting lists (all of its trigrams, intersected, if it is
+ * longer than three characters), and are then checked against the fields
+ * themselves.  Matches are ranked by how well each term matched: a whole
+ * field, the start of a field or word, or anywhere inside; names count
+ * twice as much as rank and workcenter.</p>
+ *
+ * <p>
+ * The index is rebuilt when the roster or the rank and workcenter names
+ * change.  Only the first build runs on the caller's thread; after that a
+ * change starts a rebuild on a background thread, and searches are
+ * answered from the previous index (and its roster) until the new one is
+ * ready, so a keystroke never waits for a rebuild.  A person just added
+ * can take that long (around 100 ms for 10,000 people) to be found.</p>
+ */
+final class SearchIndex {
+
+  private static final Logger logger =
+      Logger.getLogger(SearchIndex.class.getName());
+
+  private static final int GRAM = 3;
+
+  private static volatile SearchIndex current;
+
+  //  Set while a rebuild is queued or running, so there is at most one
+  private static final AtomicBoolean rebuilding = new AtomicBoolean();
+  private static final ExecutorService rebuilder =
+      Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SearchIndex-rebuild");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+  private final RosterStore.Snapshot roster;
+  private final LookupCache.Table ranks;
+  private final LookupCache.Table workcenters;
+
+  //  Normalized fields, by row
+  private final String[] firstNames;
+  private final String[] lastNames;
+  private final String[] rankNames;
+  private final String[] workcenterNames;
+
+  //  Rows in (last name, first name) order, and each row's place in it
+  private final int[] byName;
+  private final int[] nameOrder;
+
+  //  Packed n-gram -> ascending rows
+  private final Map<Long, int[]> postings;
+
+  private SearchIndex(RosterStore.Snapshot roster, LookupCache.Table ranks,
+                      LookupCache.Table workcenters) {
+    long started = System.nanoTime();
+    int size = roster.size();
+    this.roster = roster;
+    this.ranks = ranks;
+    this.workcenters = workcenters;
+    this.firstNames = new String[size];
+    this.lastNames = new String[size];
+    this.rankNames = new String[size];
+    this.workcenterNames = new String[size];
+
+    Map<Integer, String> rankCache = new HashMap<>();
+    Map<Integer, String> workcenterCache = new HashMap<>();
+    Map<Long, Postings> building = new HashMap<>();
+
+    for (int row = 0; row < size; row++) {
+      firstNames[row] = normalize(roster.firstName(row));
+      lastNames[row] = normalize(roster.lastName(row));
+      rankNames[row] = rankCache.computeIfAbsent(roster.rankId(row),
+          id -> normalize(ranks == null ? null : ranks.getName(id)));
+      workcenterNames[row] = workcenterCache.computeIfAbsent(
+          roster.workcenterId(row),
+          id -> normalize(workcenters == null ? null
+                                              : workcenters.getName(id)));
+
+      for (String field : new String[] {firstNames[row], lastNames[row],
+                                        rankNames[row],
+                                        workcenterNames[row]}) {
+        for (int start = 0; start < field.length(); start++) {
+          for (int end = start + 1;
+               end <= Math.min(start + GRAM, field.length()); end++) {
+            building.computeIfAbsent(pack(field, start, end),
+                                     k -> new Postings()).add(row);
+          }
+        }
+      }
+    }
+
+    Integer[] sorted = new Integer[size];
+    for (int row = 0; row < size; row++) {
+      sorted[row] = row;
+    }
+    Arrays.sort(sorted, (a, b) -> {
+      int byLast = lastNames[a].compareTo(lastNames[b]);
+      if (byLast == 0) {
+        byLast = firstNames[a].compareTo(firstNames[b]);
+      }
+      return (byLast != 0) ? byLast : Integer.compare(a, b);
+    });
+    this.byName = new int[size];
+    this.nameOrder = new int[size];
+    for (int x = 0; x < size; x++) {
+      byName[x] = sorted[x];
+      nameOrder[sorted[x]] = x;
+    }
+
+    this.postings = new HashMap<>(building.size() * 2);
+    for (Map.Entry<Long, Postings> entry : building.entrySet()) {
+      postings.put(entry.getKey(), entry.getValue().toArray());
+    }
+    logger.fine(String.format("Indexed %d people, %d n-grams, in %d ms",
+                              size, postings.size(),
+                              (System.nanoTime() - started) / 1_000_000));
+  }
+
+  /**
+   * <p>
+   * The latest index built.  Builds it now if there is none yet; if
+   * anything it was built from has changed since, starts a rebuild in the
+   * background and returns it anyway.</p>
+   */
+  static SearchIndex get() {
+    SearchIndex index = current;
+    if (index == null) {
+      synchronized (SearchIndex.class) {
+        index = current;
+        if (index == null) {
+          index = build();
+          current = index;
+        }
+      }
+    } else if (index.isStale() && rebuilding.compareAndSet(false, true)) {
+      rebuilder.execute(SearchIndex::rebuild);
+    }
+    return index;
+  }
+
+  /**
+   * Runs on <code>rebuilder</code>: builds until the index is current,
+   * since the roster can change again while it builds.
+   */
+  private static void rebuild() {
+    try {
+      SearchIndex index;
+      do {
+        index = build();
+        synchronized (SearchIndex.class) {
+          if (current == null) {
+            return;  // invalidated meanwhile; the next get() builds
+          }
+          current = index;
+        }
+      } while (index.isStale());
+    } catch (RuntimeException e) {
+      logger.log(Level.WARNING, "Could not rebuild the search index", e);
+    } finally {
+      rebuilding.set(false);
+    }
+  }
+
+  private static SearchIndex build() {
+    return new SearchIndex(RosterStore.get(), LookupCache.get(Lookup.RANK),
+                           LookupCache.get(Lookup.WORKCENTER));
+  }
+
+  private boolean isStale() {
+    return roster != RosterStore.get()
+        || ranks != LookupCache.get(Lookup.RANK)
+        || workcenters != LookupCache.get(Lookup.WORKCENTER);
+  }
+
+  /**
+   * <p>
+   * Drops the index; it is built again on next use.</p>
+   */
+  static synchronized void invalidate() {
+    current = null;
+  }
+
+  RosterStore.Snapshot getRoster() {
+    return roster;
+  }
+
+  /**
+   * <p>
+   * The rows of <code>getRoster()</code> that match <code>query</code>,
+   * best first, at most <code>limit</code> of them.  A blank query matches
+   * everyone, in ID order.</p>
+   */
+  int[] search(String query, int limit) {
+    String[] terms = normalize(query).trim().split("\\s+");
+    if (terms.length == 0 || terms[0].isEmpty()) {
+      int[] all = new int[Math.min(roster.size(), Math.max(limit, 0))];
+      for (int row = 0; row < all.length; row++) {
+        all[row] = row;
+      }
+      return all;
+    }
+
+    //  Candidates: rows holding every n-gram of every term
+    int[] candidates = null;
+    for (String term : terms) {
+      int[] rows = candidates(term);
+      candidates = (candidates == null) ? rows : intersect(candidates, rows);
+      if (candidates.length == 0) {
+        return candidates;
+      }
+    }
+
+    //  Check each candidate's fields, and score it.  Each match is one
+    //  long, best score then name order, so they sort as primitives.
+    long[] matches = new long[candidates.length];
+    int found = 0;
+    for (int row : candidates) {
+      int score = 0;
+      for (String term : terms) {
+        int best = Math.max(
+            Math.max(2 * score(firstNames[row], term),
+                     2 * score(lastNames[row], term)),
+            Math.max(score(rankNames[row], term),
+                     score(workcenterNames[row], term)));
+        if (best == 0) {
+          score = -1;
+          break;
+        }
+        score += best;
+      }
+      if (score > 0) {
+        matches[found++] = ((long) -score << 32) | nameOrder[row];
+      }
+    }
+    Arrays.sort(matches, 0, found);
+
+    int[] rows = new int[Math.min(found, Math.max(limit, 0))];
+    for (int x = 0; x < rows.length; x++) {
+      rows[x] = byName[(int) matches[x]];
+    }
+    return rows;
+  }
+
+  private int[] candidates(String term) {
+    if (term.length() <= GRAM) {
+      int[] rows = postings.get(pack(term, 0, term.length()));
+      return (rows == null) ? new int[0] : rows;
+    }
+
+    int[] rows = null;
+    for (int start = 0; start + GRAM <= term.length(); start++) {
+      int[] gram = postings.get(pack(term, start, start + GRAM));
+      if (gram == null) {
+        return new int[0];
+      }
+      rows = (rows == null) ? gram : intersect(rows, gram);
+    }
+    return rows;
+  }
+
+  /**
+   * 3 for the whole field, 2 for the start of the field or of a word in
+   * it, 1 anywhere else, 0 if not found.
+   */
+  private static int score(String field, String term) {
+    int at = field.indexOf(term);
+    if (at < 0) {
+      return 0;
+    }
+    if (at == 0) {
+      return (field.length() == term.length()) ? 3 : 2;
+    }
+    for (; at > 0; at = field.indexOf(term, at + 1)) {
+      if (!Character.isLetterOrDigit(field.charAt(at - 1))) {
+        return 2;
+      }
+    }
+    return 1;
+  }
+
+  private static int[] intersect(int[] a, int[] b) {
+    int[] both = new int[Math.min(a.length, b.length)];
+    int size = 0;
+    for (int i = 0, j = 0; i < a.length && j < b.length;) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        both[size++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(both, size);
+  }
+
+  /**
+   * Packs up to three characters, and how many there are, into a key.
+   */
+  private static long pack(String text, int start, int end) {
+    long key = end - start;
+    for (int x = start; x < end; x++) {
+      key = (key << 16) | text.charAt(x);
+    }
+    return key;
+  }
+
+  /**
+   * <p>
+   * Upper case, with accents removed, so "Jos&eacute;" and "jose" match.</p>
+   */
+  static String normalize(String text) {
+    if (text == null) {
+      return "";
+    }
+    return Normalizer.normalize(text, Normalizer.Form.NFD)
+        .replaceAll("\\p{M}", "").toUpperCase(Locale.ROOT);
+  }
+
+  /**
+   * Rows for one n-gram, added in ascending order.
+   */
+  private static final class Postings {
+    private int[] rows = new int[4];
+    private int size;
+
+    void add(int row) {
+      if (size > 0 && rows[size - 1] == row) {
+        return;
+      }
+      if (size == rows.length) {
+        rows = Arrays.copyOf(rows, size * 2);
+      }
+      rows[size++] = row;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(rows, size);
+    }
+  }
+}
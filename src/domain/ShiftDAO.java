@@ -5,6 +5,8 @@
  * Added getList() method
  * 
  * 2016-03-24 : Formatted to match Google Java Style
+ * 
+ * 2026-10-18 : Serves every call from LookupCache instead of querying the database each time
  */
 
 /**
@@ -13,15 +15,7 @@
  */
 package domain;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
-import java.util.logging.Logger;
-import java.util.logging.Level;
 
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -29,161 +23,36 @@ import javafx.collections.ObservableList;
 import javax.swing.ComboBoxModel;
 import javax.swing.DefaultComboBoxModel;
 
-import util.DBConnectionPool;
+import domain.LookupCache.Lookup;
 
 public class ShiftDAO {
 
-  private DBConnectionPool connPool;
-  private static final Logger logger = Logger.getLogger(ShiftDAO.class.getName());
-
-  private static final String GET_STATEMENT = "SELECT * "
-      + "FROM shift";
-
   public ObservableList<String> getList() {
-
-    PreparedStatement request = null;
-    Connection conn = null;
-
-    try {
-      conn = DBConnectionPool.getPoolConnection();
-      request = conn.prepareStatement(GET_STATEMENT);
-
-      ResultSet rset = request.executeQuery();
-      ArrayList<String> shiftList = new ArrayList<>();
-
-      while (rset.next()) {
-        shiftList.add(rset.getString("name"));
-      }
-
-      return FXCollections.observableArrayList(shiftList);
-
-    } catch (SQLException se) {
-      logger.log(Level.WARNING, "A database error occurred. " + se.getMessage());
-    } catch (Exception e) {
-      logger.log(Level.WARNING, "Exception: " + e.getMessage());
-    } finally {
-
-      if (request != null) {
-        try {
-          request.close();
-        } catch (SQLException se) {
-          se.printStackTrace(System.err);
-        }
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-        } catch (Exception e) {
-          e.printStackTrace(System.err);
-        }
-      }
+    LookupCache.Table table = LookupCache.get(Lookup.SHIFT);
+    if (table == null) {
+      return null;
     }
 
-    return null;
+    return FXCollections.observableArrayList(table.getNames());
   }
 
   public ComboBoxModel getComboModel() {
-
-    PreparedStatement request = null;
-    Connection conn = null;
-
-    ArrayList<Person> personList = new ArrayList<>();
-    try {
-      conn = DBConnectionPool.getPoolConnection();
-      request = conn.prepareStatement(GET_STATEMENT);
-
-      ResultSet rset = request.executeQuery();
-      ArrayList<String> shiftList = new ArrayList<>();
-
-      while (rset.next()) {
-        shiftList.add(rset.getString("name"));
-      }
-
-      String[] shiftArray = (String[]) shiftList.toArray(new String[0]);
-
-      return new DefaultComboBoxModel(shiftArray);
-
-    } catch (SQLException se) {
-      logger.log(Level.WARNING, "A database error occurred. " + se.getMessage());
-    } catch (Exception e) {
-      logger.log(Level.WARNING, "Exception: " + e.getMessage());
-    } finally {
-
-      if (request != null) {
-        try {
-          request.close();
-        } catch (SQLException se) {
-          se.printStackTrace(System.err);
-        }
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-        } catch (Exception e) {
-          e.printStackTrace(System.err);
-        }
-      }
+    LookupCache.Table table = LookupCache.get(Lookup.SHIFT);
+    if (table == null) {
+      return null;
     }
 
-    return null;
+    return new DefaultComboBoxModel(table.getNames().toArray(new String[0]));
   }
 
   public Map<Integer, String> getMap() {
-
-    PreparedStatement request = null;
-    Connection conn = null;
-
-    try {
-      conn = DBConnectionPool.getPoolConnection();
-      request = conn.prepareStatement(GET_STATEMENT);
-
-      ResultSet rset = request.executeQuery();
-      HashMap<Integer, String> list = new HashMap<>();
-
-      int number = 1;
-      while (rset.next()) {
-        list.put(number++, rset.getString("name"));
-      }
-
-      return list;
-
-    } catch (SQLException se) {
-      logger.log(Level.WARNING, "A database error occurred. " + se.getMessage());
-    } catch (Exception e) {
-      logger.log(Level.WARNING, "Exception: " + e.getMessage());
-    } finally {
-
-      if (request != null) {
-        try {
-          request.close();
-        } catch (SQLException se) {
-          se.printStackTrace(System.err);
-        }
-      }
-
-      if (conn != null) {
-        try {
-          conn.close();
-        } catch (Exception e) {
-          e.printStackTrace(System.err);
-        }
-      }
-    }
-
-    return null;
+    LookupCache.Table table = LookupCache.get(Lookup.SHIFT);
+    return (table == null) ? null : table.getMap();
   }
 
   public Map<String, Integer> getMapReversed() {
-    Map<Integer, String> orderedMap = getMap();
-    Map<String, Integer> reversedMap = new HashMap<>();
-
-    for (Integer key : orderedMap.keySet()) {
-      reversedMap.put((String) orderedMap.get(key), key);
-    }
-
-    return reversedMap;
+    LookupCache.Table table = LookupCache.get(Lookup.SHIFT);
+    return (table == null) ? null : table.getMapReversed();
   }
 
 }
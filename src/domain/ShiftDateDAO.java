@@ -12,6 +12,15 @@
  * 2016-03-24 : Changed all variables from Integer to int where appropriate
  * 2016-03-24 : Replaced debug System.out calls with Logger calls
  * 2016-03-24 : Formatted to match Google Java Style
+ * 
+ * 2026-10-18 : Added getShiftGrid() and getShiftIdGrid() to load the shifts of many people over a date range in one query
+ * 2026-10-18 : getWeek() now uses getShiftGrid() instead of calling getCurrentShift() once per day
+ * 2026-10-18 : getCurrentShift() and getShiftIdGrid() now read the in-memory ShiftTimeline instead of querying SHIFT_DATE
+ * 2026-10-18 : insert() and removeStartDate() keep ShiftTimeline current once their change is committed
+ * 2026-10-18 : Fixed REMOVE_STMT, which used the nonexistent start_date column
+ * 2026-10-18 : insert() and removeStartDate() drop the affected WeekGridCache weeks once committed
+ * 2026-10-18 : insert() rethrows a failure instead of logging it, so the unit of work it is part of rolls back
+ * 2026-10-18 : Removed placeholders() and MAX_IN_LIST, unused since the IN-list queries were replaced by ShiftTimeline
  */
 
 /**
@@ -22,16 +31,16 @@ package domain;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Logger;
-import java.util.logging.Level;
 
 import util.DBConnectionPool;
+import util.UnitOfWork;
 
 public class ShiftDateDAO {
 
@@ -55,9 +64,6 @@ public class ShiftDateDAO {
     return true;
   }
 
-  private static final String GET_CURRENT_SHIFT_STMT = "SELECT * FROM shift_date "
-      + "WHERE person_id = ?";
-
   public int getCurrentShift(Person person) {
     return getCurrentShift(person.getObjectID());
   }
@@ -69,85 +75,27 @@ public class ShiftDateDAO {
   //  end method getCurrentShift(person_id)
 
   /**
+   * <p>
+   * The shift a person works on <code>date</code>: the one from their most
+   * recent shift change on or before it.  A binary search of
+   * <code>ShiftTimeline</code>; no query after the first call.</p>
    *
    * @param person_id
-   * @param shift_id
    * @param date
    *
-   * @return
+   * @return the shift ID, or <code>-1</code> if the person has no shift
+   *         change on or before <code>date</code>
    */
   public int getCurrentShift(int person_id, LocalDate date) {
-
-    PreparedStatement request = null;
-    Connection conn = null;
-
-    try {
-      conn = DBConnectionPool.getPoolConnection();
-      request = conn.prepareStatement(GET_CURRENT_SHIFT_STMT);
-      request.setInt(1, person_id);
-
-      ResultSet rset = request.executeQuery();
-
-      //   Find the shift change date that is:
-      //       A) Earlier than 'date'
-      //       B) The most recent
-      //   The above two conditions will yield the current shift.
-      Date shiftDate = Date.valueOf("1900-01-01");
-      int shift = 0;
-      while (rset.next()) {
-        Date tempDate = rset.getDate("change_date");
-
-        LocalDate tempLocalDate = tempDate.toLocalDate();
-        LocalDate shiftLocalDate = shiftDate.toLocalDate();
-        LocalDate nextDayLocalDate = date.plus(1, ChronoUnit.DAYS);
-
-        if (tempLocalDate.isAfter(shiftLocalDate)
-            && tempLocalDate.isBefore(nextDayLocalDate)) {
-          shiftDate = tempDate;
-          shift = rset.getInt("shift_id");
-        }  // check if next date is more current
-      }  // loop through shift changes
-
-      if (shift != 0) {
-        return shift;
-      }
-
-    } catch (SQLException se) {
-      throw new RuntimeException(
-          "A database error occurred. " + se.getMessage());
-    } catch (Exception e) {
-      throw new RuntimeException("Exception: " + e.getMessage());
-    } finally {
-      if (request != null) {
-        try {
-          request.close();
-        } catch (SQLException se) {
-          se.printStackTrace(System.err);
-        }
-      }
-      if (conn != null) {
-        try {
-          conn.close();
-        } catch (Exception e) {
-          e.printStackTrace(System.err);
-        }
-      }
-    }
-
-    return -1;
+    return ShiftTimeline.shiftOn(person_id, date.toEpochDay());
   }
 
   public ArrayList<String> getWeek(int person_id, LocalDate firstDay) {
-    ArrayList<String> shifts = new ArrayList<>();
-    Map<Integer, String> shiftMap = (new ShiftDAO()).getMap();
+    ArrayList<Integer> personIds = new ArrayList<>();
+    personIds.add(person_id);
 
-    for (int x = 0; x < 7; x++) {
-      LocalDate date = firstDay.plusDays(x);
-      int shift = getCurrentShift(person_id, date);
-      shifts.add(shiftMap.get(shift));
-    }
-
-    return shifts;
+    return getShiftGrid(personIds, firstDay, firstDay.plusDays(6))
+        .get(person_id);
   }  // end getWeek(Person, LocalDate)
   
   public ArrayList<String> getWeek(Person person, LocalDate firstDay) {
@@ -155,6 +103,71 @@ public class ShiftDateDAO {
     return getWeek(person_id, firstDay);
   }  // end getWeek(Person, LocalDate)
 
+  /**
+   * <p>
+   * Builds the shift grid for several people at once: for each person, the
+   * name of their shift on every day from <code>firstDay</code> through
+   * <code>lastDay</code> (inclusive), or <code>null</code> on days before
+   * their first shift change.</p>
+   *
+   * <p>
+   * Costs at most the shift names query; the shift history comes from
+   * <code>ShiftTimeline</code>.</p>
+   *
+   * @param personIds
+   * @param firstDay
+   * @param lastDay
+   * @return each person's shift names in day order, keyed by person ID, in
+   *         the same order as <code>personIds</code>
+   */
+  public Map<Integer, ArrayList<String>> getShiftGrid(
+      Collection<Integer> personIds, LocalDate firstDay, LocalDate lastDay) {
+    Map<Integer, int[]> idGrid = getShiftIdGrid(personIds, firstDay, lastDay);
+    Map<Integer, String> shiftMap = (new ShiftDAO()).getMap();
+    Map<Integer, ArrayList<String>> grid = new LinkedHashMap<>();
+
+    for (Map.Entry<Integer, int[]> entry : idGrid.entrySet()) {
+      int[] shiftIds = entry.getValue();
+      ArrayList<String> shifts = new ArrayList<>(shiftIds.length);
+      for (int shift : shiftIds) {
+        shifts.add(shiftMap.get(shift));
+      }
+      grid.put(entry.getKey(), shifts);
+    }
+
+    return grid;
+  }  // end getShiftGrid(Collection, LocalDate, LocalDate)
+
+  /**
+   * <p>
+   * Same as <code>getShiftGrid()</code>, but returns shift IDs, with
+   * <code>-1</code> for days before a person's first shift change.</p>
+   *
+   * <p>
+   * Reads <code>ShiftTimeline</code>, one sweep of each person's change
+   * dates across the whole range.</p>
+   *
+   * @param personIds
+   * @param firstDay
+   * @param lastDay
+   * @return each person's shift IDs in day order, keyed by person ID
+   */
+  public Map<Integer, int[]> getShiftIdGrid(Collection<Integer> personIds,
+                                            LocalDate firstDay,
+                                            LocalDate lastDay) {
+    long first = firstDay.toEpochDay();
+    int days = (int) (lastDay.toEpochDay() - first) + 1;
+    Map<Integer, int[]> grid = new LinkedHashMap<>();
+
+    for (Integer personId : personIds) {
+      int[] shifts = new int[Math.max(days, 0)];
+      ShiftTimeline.fill(personId, first, shifts);
+      grid.put(personId, shifts);
+    }
+
+    return grid;
+  }  // end getShiftIdGrid(Collection, LocalDate, LocalDate)
+
   private static final String INSERT_STMT = "INSERT INTO shift_date "
       + "VALUES (?, ?, ?, ?)";
 
@@ -173,6 +186,11 @@ public class ShiftDateDAO {
       stmt.setDate(3, date);
       stmt.setInt(4, shift_id);
       stmt.executeUpdate();
+      long day = date.toLocalDate().toEpochDay();
+      UnitOfWork.afterCommit(() -> {
+        ShiftTimeline.record(person_id, day, shift_id);
+        WeekGridCache.shiftsChanged(person_id, day);
+      });
 
       //  DEBUG:
       logger.fine("\ninsert() successful.");
@@ -180,7 +198,7 @@ public class ShiftDateDAO {
       throw new RuntimeException(
           "A database error occurred. " + se.getMessage());
     } catch (Exception e) {
-      logger.log(Level.WARNING, "insert() ~ Exception: " + e.getMessage());
+      throw new RuntimeException("Exception: " + e.getMessage());
     } finally {
       if (stmt != null) {
         try {
@@ -228,6 +246,12 @@ public class ShiftDateDAO {
       stmt.setInt(1, person.getObjectID());
       stmt.setDate(2, date);
       stmt.executeUpdate();
+      int personId = person.getObjectID();
+      long day = date.toLocalDate().toEpochDay();
+      UnitOfWork.afterCommit(() -> {
+        ShiftTimeline.remove(personId, day);
+        WeekGridCache.shiftsChanged(personId, day);
+      });
 
     } catch (SQLException se) {
       throw new RuntimeException(
@@ -254,7 +278,7 @@ public class ShiftDateDAO {
   
   private static final String REMOVE_STMT = "DELETE FROM shift_date "
       + "WHERE  person_id = ? "
-      + "AND   start_date = ?";
+      + "AND   change_date = ?";
   
   /**
    * TODO: Fix this
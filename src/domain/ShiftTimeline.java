@@ -0,0 +1,329 @@
+//  ShiftTimeline.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, an in-memory index of every person's shift changes for ShiftDateDAO
+ * 2026-10-18 : Added version(), so caches built from the timeline can tell when it changes
+ * 2026-10-18 : The version is bumped after a change is visible, not before
+ * 2026-10-18 : invalidate() is called by Caches.refresh(), so other clients' changes can be seen
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+
+import util.DBConnectionPool;
+
+/**
+ * <p>
+ * Every person's <code>SHIFT_DATE</code> history, held as two parallel
+ * arrays per person: change dates as epoch days, in ascending order, and
+ * the shift ID that starts on each.  The table is read once, on first use;
+ * after that <code>ShiftDateDAO</code> keeps it current through
+ * <code>record()</code> and <code>remove()</code>.</p>
+ *
+ * <p>
+ * "Shift on day X" is a binary search, and a run of days is one sweep;
+ * neither allocates.  When two changes share a date, the first one
+ * (lowest ID) wins, as it always has in <code>ShiftDateDAO</code>.</p>
+ *
+ * <p>
+ * Changes made by other clients of a shared database are not seen until
+ * <code>Caches.refresh()</code> calls <code>invalidate()</code>.</p>
+ */
+final class ShiftTimeline {
+
+  private static final Logger logger =
+      Logger.getLogger(ShiftTimeline.class.getName());
+
+  //  Indexed by person ID; null until loaded.  Each slot is replaced, never
+  //  changed in place, so readers need no lock.
+  private static volatile AtomicReferenceArray<Timeline> timelines;
+
+  //  Bumped on every change, after it is visible, so a reader that sees
+  //  the new version also sees the change
+  private static volatile int version;
+
+  private ShiftTimeline() { }
+
+  /**
+   * <p>
+   * A number that changes whenever the timeline does.</p>
+   */
+  static int version() {
+    return version;
+  }
+
+  /**
+   * @param personId
+   * @param epochDay
+   * @return the shift ID on that day, or <code>-1</code> if the person has
+   *         no shift change on or before it
+   */
+  static int shiftOn(int personId, long epochDay) {
+    Timeline timeline = get(personId);
+    if (timeline == null) {
+      return -1;
+    }
+    int index = timeline.indexOn(epochDay);
+    return (index < 0) ? -1 : timeline.shifts[index];
+  }
+
+  /**
+   * <p>
+   * Fills <code>shifts</code> with the person's shift ID on each day from
+   * <code>firstDay</code> on, one element per day, with <code>-1</code> on
+   * days before their first shift change.</p>
+   *
+   * @param personId
+   * @param firstDay epoch day of <code>shifts[0]</code>
+   * @param shifts
+   */
+  static void fill(int personId, long firstDay, int[] shifts) {
+    Timeline timeline = get(personId);
+    if (timeline == null) {
+      Arrays.fill(shifts, -1);
+      return;
+    }
+
+    int index = timeline.indexOn(firstDay);
+    int shift = (index < 0) ? -1 : timeline.shifts[index];
+    int next = index + 1;
+
+    for (int day = 0; day < shifts.length; day++) {
+      while (next < timeline.days.length
+             && timeline.days[next] <= firstDay + day) {
+        shift = timeline.shifts[next++];
+      }
+      shifts[day] = shift;
+    }
+  }
+
+  /**
+   * <p>
+   * Adds a committed shift change.  A second change on a date that already
+   * has one is ignored, since the first still wins.</p>
+   */
+  static synchronized void record(int personId, long epochDay, int shiftId) {
+    AtomicReferenceArray<Timeline> current = timelines;
+    //  If not loaded yet, the load will read the new row
+    if (current != null) {
+      if (personId >= current.length()) {
+        current = grow(current, personId);
+      }
+
+      Timeline timeline = current.get(personId);
+      current.set(personId, (timeline == null)
+          ? new Timeline(new int[] {(int) epochDay}, new int[] {shiftId})
+          : timeline.with((int) epochDay, shiftId));
+    }
+    version++;
+  }
+
+  /**
+   * <p>
+   * Drops a person's shift change(s) on a date, after they are deleted from
+   * <code>SHIFT_DATE</code>.</p>
+   */
+  static synchronized void remove(int personId, long epochDay) {
+    AtomicReferenceArray<Timeline> current = timelines;
+    if (current != null && personId < current.length()) {
+      Timeline timeline = current.get(personId);
+      if (timeline != null) {
+        current.set(personId, timeline.without((int) epochDay));
+      }
+    }
+    version++;
+  }
+
+  /**
+   * <p>
+   * Forgets everything; the table is read again on next use.</p>
+   */
+  static synchronized void invalidate() {
+    timelines = null;
+    version++;
+  }
+
+  private static Timeline get(int personId) {
+    AtomicReferenceArray<Timeline> current = timelines;
+    if (current == null) {
+      current = load();
+    }
+    return (personId >= 0 && personId < current.length())
+        ? current.get(personId) : null;
+  }
+
+  private static AtomicReferenceArray<Timeline> grow(
+      AtomicReferenceArray<Timeline> current, int personId) {
+    AtomicReferenceArray<Timeline> grown = new AtomicReferenceArray<>(
+        Math.max(personId + 1, current.length() * 2));
+    for (int i = 0; i < current.length(); i++) {
+      grown.set(i, current.get(i));
+    }
+    timelines = grown;
+    return grown;
+  }
+
+  private static synchronized AtomicReferenceArray<Timeline> load() {
+    if (timelines != null) {
+      return timelines;
+    }
+
+    PreparedStatement request = null;
+    Connection conn = null;
+    AtomicReferenceArray<Timeline> loaded = new AtomicReferenceArray<>(16);
+    long started = System.nanoTime();
+    int rows = 0;
+
+    try {
+      conn = DBConnectionPool.getPoolConnection();
+      request = conn.prepareStatement(LOAD_STMT);
+      ResultSet rset = request.executeQuery();
+
+      int person = -1;
+      int[] days = new int[16];
+      int[] shifts = new int[16];
+      int size = 0;
+
+      while (rset.next()) {
+        int personId = rset.getInt("person_id");
+        int day = (int) rset.getDate("change_date").toLocalDate()
+                                                    .toEpochDay();
+        rows++;
+
+        if (personId != person) {
+          loaded = put(loaded, person, days, shifts, size);
+          person = personId;
+          size = 0;
+        } else if (days[size - 1] == day) {
+          continue;  // same date: the first change wins
+        }
+
+        if (size == days.length) {
+          days = Arrays.copyOf(days, size * 2);
+          shifts = Arrays.copyOf(shifts, size * 2);
+        }
+        days[size] = day;
+        shifts[size] = rset.getInt("shift_id");
+        size++;
+      }
+      loaded = put(loaded, person, days, shifts, size);
+
+    } catch (SQLException se) {
+      throw new RuntimeException(
+          "A database error occurred. " + se.getMessage());
+    } catch (Exception e) {
+      throw new RuntimeException("Exception: " + e.getMessage());
+    } finally {
+      if (request != null) {
+        try {
+          request.close();
+        } catch (SQLException se) {
+          se.printStackTrace(System.err);
+        }
+      }
+      if (conn != null) {
+        try {
+          conn.close();
+        } catch (Exception e) {
+          e.printStackTrace(System.err);
+        }
+      }
+    }
+
+    logger.fine(String.format("Loaded %d shift changes in %d ms", rows,
+                              (System.nanoTime() - started) / 1_000_000));
+    timelines = loaded;
+    return loaded;
+  }
+
+  private static AtomicReferenceArray<Timeline> put(
+      AtomicReferenceArray<Timeline> loaded, int personId,
+      int[] days, int[] shifts, int size) {
+    if (personId < 0 || size == 0) {
+      return loaded;
+    }
+    if (personId >= loaded.length()) {
+      AtomicReferenceArray<Timeline> grown = new AtomicReferenceArray<>(
+          Math.max(personId + 1, loaded.length() * 2));
+      for (int i = 0; i < loaded.length(); i++) {
+        grown.set(i, loaded.get(i));
+      }
+      loaded = grown;
+    }
+    loaded.set(personId, new Timeline(Arrays.copyOf(days, size),
+                                      Arrays.copyOf(shifts, size)));
+    return loaded;
+  }
+
+  /**
+   * One person's changes.  Immutable; updates build a new one.
+   */
+  private static final class Timeline {
+    final int[] days;
+    final int[] shifts;
+
+    Timeline(int[] days, int[] shifts) {
+      this.days = days;
+      this.shifts = shifts;
+    }
+
+    /** Index of the last change on or before the day, or -1. */
+    int indexOn(long epochDay) {
+      if (epochDay > Integer.MAX_VALUE) {
+        return days.length - 1;
+      }
+      if (epochDay < Integer.MIN_VALUE) {
+        return -1;
+      }
+      int index = Arrays.binarySearch(days, (int) epochDay);
+      return (index >= 0) ? index : -index - 2;
+    }
+
+    Timeline with(int day, int shift) {
+      int index = Arrays.binarySearch(days, day);
+      if (index >= 0) {
+        return this;
+      }
+      int at = -index - 1;
+      int[] newDays = new int[days.length + 1];
+      int[] newShifts = new int[shifts.length + 1];
+      System.arraycopy(days, 0, newDays, 0, at);
+      System.arraycopy(shifts, 0, newShifts, 0, at);
+      newDays[at] = day;
+      newShifts[at] = shift;
+      System.arraycopy(days, at, newDays, at + 1, days.length - at);
+      System.arraycopy(shifts, at, newShifts, at + 1, shifts.length - at);
+      return new Timeline(newDays, newShifts);
+    }
+
+    Timeline without(int day) {
+      int at = Arrays.binarySearch(days, day);
+      if (at < 0) {
+        return this;
+      }
+      int[] newDays = new int[days.length - 1];
+      int[] newShifts = new int[shifts.length - 1];
+      System.arraycopy(days, 0, newDays, 0, at);
+      System.arraycopy(shifts, 0, newShifts, 0, at);
+      System.arraycopy(days, at + 1, newDays, at, days.length - at - 1);
+      System.arraycopy(shifts, at + 1, newShifts, at, shifts.length - at - 1);
+      return new Timeline(newDays, newShifts);
+    }
+  }
+
+  private static final String LOAD_STMT = "SELECT person_id, change_date, "
+      + "shift_id "
+      + "FROM shift_date "
+      + "ORDER BY person_id, change_date, id";
+}
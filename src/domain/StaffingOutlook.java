@@ -0,0 +1,380 @@
+//  StaffingOutlook.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, per-day headcounts by workcenter, shift and skill level against requirements
+ * 2026-10-18 : Reads the people from RosterStore instead of querying PERSON
+ * 2026-10-18 : Absences come from AbsenceTypes, shared with ConflictDetector
+ * 2026-10-18 : Headcounts are 0, not an error, with no skills or an unknown skill
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.logging.Logger;
+
+import domain.LookupCache.Lookup;
+
+/**
+ * <p>
+ * The schedule outlook: for every day in a range, how many people each
+ * workcenter has on each shift, by skill level, compared with how many it
+ * needs.  A person counts on a day when they are on that shift (per
+ * <code>SHIFT_DATE</code>) and not absent (leave or TDY, per
+ * <code>AbsenceTypes</code>).</p>
+ *
+ * <p>
+ * Headcounts are built from <code>RosterStore</code>,
+ * <code>ShiftTimeline</code> and <code>EventIndex</code> into one flat
+ * <code>int[]</code>, a day column per (workcenter, shift, skill) cell.
+ * People are split across the fork/join pool; each task counts its share
+ * into its own array and the arrays are summed, so a year for every
+ * workcenter takes a fraction of a second.</p>
+ *
+ * <pre>
+ * StaffingOutlook outlook = new StaffingOutlook();
+ * outlook.setRequired(apg, day, 6);
+ * outlook.setRequired(apg, day, sevenLevel, 2);
+ * StaffingOutlook.Outlook year = outlook.compute(start, start.plusYears(1));
+ * year.getLowest(apg, day, monday, sunday);
+ * </pre>
+ */
+public class StaffingOutlook {
+
+  private static final Logger logger =
+      Logger.getLogger(StaffingOutlook.class.getName());
+
+  //  People per fork/join task
+  private static final int PEOPLE_PER_TASK = 512;
+
+  private final Map<Long, Integer> required = new HashMap<>();
+  private final Map<Long, Integer> requiredBySkill = new HashMap<>();
+
+  /**
+   * <p>
+   * Sets how many people a workcenter needs on a shift each day.</p>
+   */
+  public void setRequired(int workcenterId, int shiftId, int count) {
+    required.put(key(workcenterId, shiftId, 0), count);
+  }
+
+  /**
+   * <p>
+   * Sets how many people of <code>skillId</code>'s level <em>or higher</em>
+   * a workcenter needs on a shift each day.</p>
+   */
+  public void setRequired(int workcenterId, int shiftId, int skillId,
+                          int count) {
+    requiredBySkill.put(key(workcenterId, shiftId, skillId), count);
+  }
+
+  private static long key(int workcenterId, int shiftId, int skillId) {
+    return ((long) workcenterId << 42) ^ ((long) shiftId << 21) ^ skillId;
+  }
+
+  /**
+   * <p>
+   * Counts every workcenter's people from <code>from</code> through
+   * <code>to</code> (inclusive).</p>
+   */
+  public Outlook compute(LocalDate from, LocalDate to) {
+    long started = System.nanoTime();
+    int days = (int) Math.max(to.toEpochDay() - from.toEpochDay() + 1, 0);
+
+    Outlook outlook = new Outlook(from, days, ids(Lookup.WORKCENTER),
+                                  ids(Lookup.SHIFT), skillsByLevel(),
+                                  new HashMap<>(required),
+                                  new HashMap<>(requiredBySkill));
+    AbsenceTypes absences = AbsenceTypes.load();
+    int[][] people = getPeople();
+
+    outlook.counts = ForkJoinPool.commonPool().invoke(
+        new CountTask(outlook, people, absences, 0, people[0].length));
+
+    logger.fine(String.format("Outlook for %d people over %d days in %d ms",
+                              people[0].length, days,
+                              (System.nanoTime() - started) / 1_000_000));
+    return outlook;
+  }
+
+  /**
+   * Counts people <code>[from, to)</code>, splitting the range until it is
+   * small enough to count directly.
+   */
+  private static final class CountTask extends RecursiveTask<int[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final Outlook outlook;
+    private final int[][] people;
+    private final AbsenceTypes absences;
+    private final int from;
+    private final int to;
+
+    CountTask(Outlook outlook, int[][] people, AbsenceTypes absences,
+              int from, int to) {
+      this.outlook = outlook;
+      this.people = people;
+      this.absences = absences;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected int[] compute() {
+      if (to - from > PEOPLE_PER_TASK) {
+        int mid = (from + to) >>> 1;
+        CountTask left = new CountTask(outlook, people, absences, from, mid);
+        left.fork();
+        int[] counts =
+            new CountTask(outlook, people, absences, mid, to).compute();
+        int[] other = left.join();
+        for (int i = 0; i < counts.length; i++) {
+          counts[i] += other[i];
+        }
+        return counts;
+      }
+
+      int days = outlook.days;
+      long first = outlook.from.toEpochDay();
+      int[] counts = new int[outlook.cells() * days];
+      int[] shifts = new int[days];
+      int[] away = new int[days + 1];
+      EventIndex.Visitor markAway = (eventId, startDay, endDay, typeId,
+                                     description) -> {
+        if (absences.isAbsence(typeId)) {
+          away[(int) (Math.max(startDay, first) - first)]++;
+          away[(int) Math.min(endDay - first + 1, days)]--;
+        }
+      };
+
+      for (int p = from; p < to; p++) {
+        int workcenter = outlook.indexOf(outlook.workcenterIds,
+                                         people[1][p]);
+        int skill = outlook.indexOf(outlook.skillIds, people[2][p]);
+        if (workcenter < 0 || skill < 0 || days == 0) {
+          continue;
+        }
+
+        Arrays.fill(away, 0);
+        EventIndex.overlapping(people[0][p], first, first + days - 1,
+                               markAway);
+        ShiftTimeline.fill(people[0][p], first, shifts);
+
+        int awayNow = 0;
+        int lastShiftId = Integer.MIN_VALUE;
+        int column = -1;
+        for (int day = 0; day < days; day++) {
+          awayNow += away[day];
+          if (shifts[day] != lastShiftId) {
+            lastShiftId = shifts[day];
+            int shift = outlook.indexOf(outlook.shiftIds, lastShiftId);
+            column = (shift < 0) ? -1
+                : outlook.cell(workcenter, shift, skill) * days;
+          }
+          if (column >= 0 && awayNow == 0) {
+            counts[column + day]++;
+          }
+        }
+      }
+      return counts;
+    }
+  }
+
+  private static int[] ids(Lookup lookup) {
+    LookupCache.Table table = LookupCache.get(lookup);
+    if (table == null) {
+      throw new RuntimeException("Could not read the " + lookup + " table.");
+    }
+    return table.getMap().keySet().stream().mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  /**
+   * Skill IDs, lowest level first.
+   */
+  private static int[] skillsByLevel() {
+    LookupCache.Table table = LookupCache.get(Lookup.SKILL);
+    if (table == null) {
+      throw new RuntimeException("Could not read the SKILL table.");
+    }
+    return table.getMap().entrySet().stream()
+        .sorted((a, b) -> Integer.compare(level(a.getValue()),
+                                          level(b.getValue())))
+        .mapToInt(Map.Entry::getKey).toArray();
+  }
+
+  private static int level(String name) {
+    try {
+      return Integer.parseInt(name.trim());
+    } catch (NumberFormatException nfe) {
+      return Integer.MAX_VALUE;
+    }
+  }
+
+  /**
+   * @return person, workcenter and skill IDs, as three parallel arrays
+   */
+  private static int[][] getPeople() {
+    RosterStore.Snapshot roster = RosterStore.get();
+    int[][] people = new int[3][roster.size()];
+    for (int row = 0; row < roster.size(); row++) {
+      people[0][row] = roster.id(row);
+      people[1][row] = roster.workcenterId(row);
+      people[2][row] = roster.skillId(row);
+    }
+    return people;
+  }
+
+  /**
+   * <p>
+   * One computed outlook.  Dates outside its range count as zero
+   * people.</p>
+   */
+  public static final class Outlook {
+    private final LocalDate from;
+    private final int days;
+    private final int[] workcenterIds;
+    private final int[] shiftIds;
+    private final int[] skillIds;
+    private final Map<Long, Integer> required;
+    private final Map<Long, Integer> requiredBySkill;
+    private int[] counts;
+
+    Outlook(LocalDate from, int days, int[] workcenterIds, int[] shiftIds,
+            int[] skillIds, Map<Long, Integer> required,
+            Map<Long, Integer> requiredBySkill) {
+      this.from = from;
+      this.days = days;
+      this.workcenterIds = workcenterIds;
+      this.shiftIds = shiftIds;
+      this.skillIds = skillIds;
+      this.required = required;
+      this.requiredBySkill = requiredBySkill;
+    }
+
+    private int cells() {
+      return workcenterIds.length * shiftIds.length * skillIds.length;
+    }
+
+    private int cell(int workcenter, int shift, int skill) {
+      return (workcenter * shiftIds.length + shift) * skillIds.length
+             + skill;
+    }
+
+    private int indexOf(int[] ids, int id) {
+      for (int i = 0; i < ids.length; i++) {
+        if (ids[i] == id) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    public LocalDate getFrom() {
+      return from;
+    }
+
+    public int getDays() {
+      return days;
+    }
+
+    /**
+     * <p>
+     * People of exactly <code>skillId</code>'s level on the shift that
+     * day.</p>
+     */
+    public int getAssigned(int workcenterId, int shiftId, int skillId,
+                           LocalDate date) {
+      int day = (int) (date.toEpochDay() - from.toEpochDay());
+      int workcenter = indexOf(workcenterIds, workcenterId);
+      int shift = indexOf(shiftIds, shiftId);
+      int skill = indexOf(skillIds, skillId);
+      if (day < 0 || day >= days || workcenter < 0 || shift < 0
+          || skill < 0) {
+        return 0;
+      }
+      return counts[cell(workcenter, shift, skill) * days + day];
+    }
+
+    /**
+     * <p>
+     * People of <code>skillId</code>'s level or higher on the shift that
+     * day, or 0 if there is no such skill.</p>
+     */
+    public int getAssignedAtLeast(int workcenterId, int shiftId, int skillId,
+                                  LocalDate date) {
+      int skill = indexOf(skillIds, skillId);
+      return (skill < 0) ? 0
+                         : sumFrom(workcenterId, shiftId, skill, date);
+    }
+
+    /**
+     * <p>
+     * Everyone on the shift that day.</p>
+     */
+    public int getAssigned(int workcenterId, int shiftId, LocalDate date) {
+      return sumFrom(workcenterId, shiftId, 0, date);
+    }
+
+    //  Skill levels from the lowest index up; none if there are no skills
+    private int sumFrom(int workcenterId, int shiftId, int lowestSkill,
+                        LocalDate date) {
+      int total = 0;
+      for (int skill = lowestSkill; skill < skillIds.length; skill++) {
+        total += getAssigned(workcenterId, shiftId, skillIds[skill], date);
+      }
+      return total;
+    }
+
+    /**
+     * <p>
+     * The fewest people on the shift on any day from <code>first</code>
+     * through <code>last</code>, for week and month views.</p>
+     */
+    public int getLowest(int workcenterId, int shiftId, LocalDate first,
+                         LocalDate last) {
+      int lowest = Integer.MAX_VALUE;
+      for (LocalDate date = first; !date.isAfter(last);
+           date = date.plusDays(1)) {
+        lowest = Math.min(lowest, getAssigned(workcenterId, shiftId, date));
+      }
+      return (lowest == Integer.MAX_VALUE) ? 0 : lowest;
+    }
+
+    public int getRequired(int workcenterId, int shiftId) {
+      return required.getOrDefault(key(workcenterId, shiftId, 0), 0);
+    }
+
+    public int getRequired(int workcenterId, int shiftId, int skillId) {
+      return requiredBySkill.getOrDefault(
+          key(workcenterId, shiftId, skillId), 0);
+    }
+
+    /**
+     * <p>
+     * Whether the shift has fewer people than required that day, in total
+     * or at any skill level with a requirement.</p>
+     */
+    public boolean isShort(int workcenterId, int shiftId, LocalDate date) {
+      if (getAssigned(workcenterId, shiftId, date)
+          < getRequired(workcenterId, shiftId)) {
+        return true;
+      }
+      for (int skillId : skillIds) {
+        if (getAssignedAtLeast(workcenterId, shiftId, skillId, date)
+            < getRequired(workcenterId, shiftId, skillId)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
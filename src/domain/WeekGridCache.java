@@ -0,0 +1,345 @@
+//  WeekGridCache.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, an LRU cache of built schedule weeks keyed by workcenter, shift and first day
+ * 2026-10-18 : personChanged() drops grids after RosterStore is updated, given the old workcenter
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package domain;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javafx.beans.property.StringProperty;
+import javafx.collections.ObservableList;
+
+/**
+ * <p>
+ * The schedule weeks <code>MainStage</code> shows, kept once built so that
+ * switching back to a workcenter and shift already seen needs no lookups.
+ * Each <code>WeekGrid</code> holds the people the filters select and, for
+ * each of them and each of the seven days, their shift (the all-shifts
+ * view) or their event descriptions (a single shift's view).</p>
+ *
+ * <p>
+ * Entries are dropped least recently used first once their estimated size
+ * passes <code>-Dscheduleapp.weekCache.maxBytes</code> (default 16 MB).
+ * The DAOs drop the entries a committed write can change, and no others:
+ * </p>
+ *
+ * <pre>
+ * PersonDAO      the person's old and new workcenter, every shift and week
+ * ShiftDateDAO   the person's workcenter, every shift, weeks ending on or
+ *                after the change date
+ * PersonEventDAO the person's workcenter, single-shift views, weeks
+ *                overlapping the event
+ * </pre>
+ *
+ * <p>
+ * "All workcenters" views are dropped by every write.  Everything is
+ * dropped when a lookup table is reloaded.</p>
+ */
+public final class WeekGridCache {
+
+  private static final Logger logger =
+      Logger.getLogger(WeekGridCache.class.getName());
+
+  public static final int DAYS = 7;
+
+  private static final long MAX_BYTES =
+      Long.getLong("scheduleapp.weekCache.maxBytes", 16L << 20);
+
+  //  Least recently used first; guarded by the class lock
+  private static final Map<Long, WeekGrid> grids =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private static long bytes;
+
+  //  Bumped by every invalidation, so a grid built across one is not kept
+  private static long generation;
+
+  static {
+    LookupCache.addReloadListener(lookup -> invalidate());
+  }
+
+  private WeekGridCache() { }
+
+  /**
+   * <p>
+   * The week starting <code>weekStart</code> for the <code>MainStage</code>
+   * filters, building it if it is not cached.  A <code>workcenterId</code>
+   * or <code>shiftId</code> less than 1 is "All".</p>
+   */
+  public static WeekGrid get(int workcenterId, int shiftId,
+                             LocalDate weekStart) {
+    workcenterId = Math.max(workcenterId, 0);
+    shiftId = Math.max(shiftId, 0);
+    long key = key(workcenterId, shiftId, weekStart.toEpochDay());
+    long builtIn;
+
+    synchronized (WeekGridCache.class) {
+      WeekGrid grid = grids.get(key);
+      if (grid != null) {
+        return grid;
+      }
+      builtIn = generation;
+    }
+
+    WeekGrid grid = build(workcenterId, shiftId, weekStart);
+
+    synchronized (WeekGridCache.class) {
+      if (builtIn == generation && grid.bytes <= MAX_BYTES) {
+        WeekGrid replaced = grids.put(key, grid);
+        bytes += grid.bytes - ((replaced == null) ? 0 : replaced.bytes);
+        for (Iterator<WeekGrid> eldest = grids.values().iterator();
+             bytes > MAX_BYTES && eldest.hasNext();) {
+          bytes -= eldest.next().bytes;
+          eldest.remove();
+        }
+      }
+    }
+    return grid;
+  }
+
+  /**
+   * <p>
+   * The estimated size of everything cached, in bytes.</p>
+   */
+  public static synchronized long getBytes() {
+    return bytes;
+  }
+
+  public static synchronized int size() {
+    return grids.size();
+  }
+
+  /**
+   * <p>
+   * Drops every grid.</p>
+   */
+  public static synchronized void invalidate() {
+    grids.clear();
+    bytes = 0;
+    generation++;
+  }
+
+  /**
+   * <p>
+   * After a person is added, changed or deleted, and
+   * <code>RosterStore</code> updated: drops every grid for the workcenter
+   * they were in (<code>before</code>, read with <code>workcenterOf()</code>
+   * ahead of the update) and the one they are in now.  Dropping after the
+   * update means a grid built from the old roster is not kept.</p>
+   */
+  static void personChanged(int[] before, int workcenterId) {
+    drop((before == null) ? new int[] {workcenterId}
+                          : new int[] {before[0], workcenterId},
+         true, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  /**
+   * <p>
+   * After a shift change on <code>epochDay</code>: the person is on the new
+   * shift from then until their next change.</p>
+   */
+  static void shiftsChanged(int personId, long epochDay) {
+    drop(workcenterOf(personId), true, epochDay, Long.MAX_VALUE);
+  }
+
+  /**
+   * <p>
+   * After an event from <code>startDay</code> through <code>endDay</code>
+   * is added or removed.  Only single-shift views show events.</p>
+   */
+  static void eventsChanged(int personId, long startDay, long endDay) {
+    drop(workcenterOf(personId), false, startDay, endDay);
+  }
+
+  /**
+   * <p>
+   * The person's workcenter in <code>RosterStore</code>, as a one-element
+   * array, or <code>null</code> if they are not in it.</p>
+   */
+  static int[] workcenterOf(int personId) {
+    RosterStore.Snapshot roster = RosterStore.get();
+    int row = roster.row(personId);
+    return (row < 0) ? null : new int[] {roster.workcenterId(row)};
+  }
+
+  /**
+   * Drops grids for any of <code>workcenterIds</code> (all of them if
+   * <code>null</code>), and for all workcenters, whose days overlap
+   * <code>[fromDay, toDay]</code>.
+   */
+  private static synchronized void drop(int[] workcenterIds,
+                                        boolean allShiftsView,
+                                        long fromDay, long toDay) {
+    generation++;
+    int dropped = 0;
+    for (Iterator<WeekGrid> it = grids.values().iterator(); it.hasNext();) {
+      WeekGrid grid = it.next();
+      long first = grid.weekStart.toEpochDay();
+      if ((allShiftsView || grid.shiftId > 0)
+          && first <= toDay && first + DAYS - 1 >= fromDay
+          && matches(workcenterIds, grid.workcenterId)) {
+        bytes -= grid.bytes;
+        it.remove();
+        dropped++;
+      }
+    }
+    logger.fine(String.format("Dropped %d week grids", dropped));
+  }
+
+  private static boolean matches(int[] workcenterIds, int workcenterId) {
+    if (workcenterIds == null || workcenterId == 0) {
+      return true;
+    }
+    for (int id : workcenterIds) {
+      if (id == workcenterId) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long key(int workcenterId, int shiftId, long epochDay) {
+    return ((long) workcenterId << 42) ^ ((long) shiftId << 21) ^ epochDay;
+  }
+
+  private static WeekGrid build(int workcenterId, int shiftId,
+                                LocalDate weekStart) {
+    LocalDate weekEnd = weekStart.plusDays(DAYS - 1);
+    ArrayList<Person> people = new PersonDAO()
+        .getPeopleArrayListByShift(shiftId, workcenterId, weekStart);
+    List<Integer> personIds = new ArrayList<>(people.size());
+    for (Person person : people) {
+      personIds.add(person.getObjectID());
+    }
+
+    String[][] shifts = null;
+    String[][][] events = null;
+    if (shiftId < 1) {
+      Map<Integer, ArrayList<String>> shiftGrid =
+          new ShiftDateDAO().getShiftGrid(personIds, weekStart, weekEnd);
+      shifts = new String[people.size()][];
+      for (int row = 0; row < shifts.length; row++) {
+        shifts[row] = shiftGrid.get(personIds.get(row))
+            .toArray(new String[DAYS]);
+      }
+    } else {
+      Map<Integer, ObservableList<ObservableList<StringProperty>>> weekEvents =
+          new PersonEventDAO().getEventsForRange(personIds, weekStart,
+                                                 weekEnd);
+      events = new String[people.size()][DAYS][];
+      for (int row = 0; row < events.length; row++) {
+        ObservableList<ObservableList<StringProperty>> week =
+            weekEvents.get(personIds.get(row));
+        for (int day = 0; day < DAYS; day++) {
+          events[row][day] = week.get(day).stream().map(StringProperty::get)
+              .toArray(String[]::new);
+        }
+      }
+    }
+    return new WeekGrid(workcenterId, shiftId, weekStart, people, shifts,
+                        events);
+  }
+
+  /**
+   * <p>
+   * One built week.  Never changes once built.</p>
+   */
+  public static final class WeekGrid {
+    private final int workcenterId;
+    private final int shiftId;
+    private final LocalDate weekStart;
+    private final List<Person> people;
+    private final String[][] shifts;
+    private final String[][][] events;
+    private final long bytes;
+
+    private WeekGrid(int workcenterId, int shiftId, LocalDate weekStart,
+                     List<Person> people, String[][] shifts,
+                     String[][][] events) {
+      this.workcenterId = workcenterId;
+      this.shiftId = shiftId;
+      this.weekStart = weekStart;
+      this.people = Collections.unmodifiableList(people);
+      this.shifts = shifts;
+      this.events = events;
+      this.bytes = estimateBytes();
+    }
+
+    public int getWorkcenterId() {
+      return workcenterId;
+    }
+
+    public int getShiftId() {
+      return shiftId;
+    }
+
+    public LocalDate getWeekStart() {
+      return weekStart;
+    }
+
+    /**
+     * <p>
+     * The people, one per row, in ID order.  Do not change them.</p>
+     */
+    public List<Person> getPeople() {
+      return people;
+    }
+
+    /**
+     * <p>
+     * A person's shift name on a day of the week, or <code>null</code> if
+     * they had none yet.  All-shifts views only.</p>
+     */
+    public String getShift(int row, int day) {
+      return shifts[row][day];
+    }
+
+    /**
+     * <p>
+     * A person's <code>"[Type] description"</code> events on a day of the
+     * week.  Single-shift views only.</p>
+     */
+    public List<String> getEvents(int row, int day) {
+      return Collections.unmodifiableList(Arrays.asList(events[row][day]));
+    }
+
+    /**
+     * Rough heap size: object headers and references, plus the strings that
+     * belong to this grid alone.  Names, rank, workcenter and shift strings
+     * are shared with <code>RosterStore</code> and <code>LookupCache</code>,
+     * so only their references count.
+     */
+    private long estimateBytes() {
+      long size = 128 + 16 + 8L * people.size();
+      size += 64L * people.size();                    // each Person
+      if (shifts != null) {
+        size += (16 + 8 + 16 + 8L * DAYS) * shifts.length;
+      }
+      if (events != null) {
+        for (String[][] week : events) {
+          size += 16 + 8 + (16 + 8) * DAYS;
+          for (String[] day : week) {
+            for (String entry : day) {
+              size += 8 + 40 + 2L * entry.length();
+            }
+          }
+        }
+      }
+      return size;
+    }
+  }
+}
@@ -21,6 +21,11 @@
  * 2016-03-26 : Added `buildPersonEventTypeTable()` method
  * 2016-03-26 : Removed the `NOT NULL` identifier from all foreign key declarations
  * 
+ * 2026-10-18 : `buildDatabase()` and `testDatabase()` now return their connection to the pool
+ * 2026-10-18 : Added `buildIndexes()`, called by `buildDatabase()` and, for existing databases, by `testDatabase()`
+ * 2026-10-18 : Fixed the `VARCHAR(%D)` format in `buildPersonEventTable()`
+ * 2026-10-18 : `testDatabase()` also builds the database when the `OWNER` schema does not exist yet
+ * 
  * To-Do:
  * TODO: Make ranks added by buildRankTable() user selected
  * TODO: Make shifts added by buildShiftTable() user selected
@@ -55,8 +60,15 @@ public class DBBuild {
   private static final Logger logger = Logger.getLogger(DBBuild.class.getName());
 
   private static boolean buildDatabase() {
-    Connection conn = DBConnectionPool.getPoolConnection();
+    try (Connection conn = DBConnectionPool.getPoolConnection()) {
+      return buildDatabase(conn);
+    } catch (SQLException sql) {
+      logger.log(Level.WARNING, "SQL Exception: " + sql.getMessage());
+    }
+    return false;
+  }
 
+  private static boolean buildDatabase(Connection conn) {
     //  DEBUG:
     logger.fine("Building schemas...!");
 
@@ -127,6 +139,13 @@ public class DBBuild {
       return false;
     }
 
+    //  DEBUG:
+    logger.fine("Building indexes...!");
+
+    if (!buildIndexes(conn)) {
+      return false;
+    }
+
     //  DEBUG:
     logger.fine("Assigning schemas...!");
 
@@ -269,7 +288,7 @@ public class DBBuild {
                       + "start_time           TIME NOT NULL, "
                       + "end_date             DATE NOT NULL, "
                       + "end_time             TIME NOT NULL, "
-                      + "description          VARCHAR(%D) NOT NULL, "
+                      + "description          VARCHAR(%d) NOT NULL, "
                       + "person_event_type_id INTEGER, "
                       + "person_id            INTEGER)",
                       EVENT_DESCRIPTION_SIZE);
@@ -318,6 +337,86 @@ public class DBBuild {
     return false;
   }
 
+  /**
+   * <p>
+   * Creates the indexes and constraints that back the DAO queries, skipping
+   * any that already exist.  Safe to run against an existing database, which
+   * is how older databases pick up new indexes (see
+   * <code>testDatabase()</code>).</p>
+   */
+  private static boolean buildIndexes(Connection conn) {
+    String checkString = "SELECT conglomeratename "
+                         + "FROM sys.sysconglomerates "
+                         + "WHERE conglomeratename = ?";
+    String checkConstraintString = "SELECT constraintname "
+                                   + "FROM sys.sysconstraints "
+                                   + "WHERE constraintname = ?";
+
+    try (PreparedStatement checkStmt = conn.prepareStatement(checkString);
+         PreparedStatement checkConstraintStmt =
+             conn.prepareStatement(checkConstraintString)) {
+
+      for (String[] index : INDEXES) {
+        checkStmt.setString(1, index[0].toUpperCase());
+        try (ResultSet checkSet = checkStmt.executeQuery()) {
+          if (checkSet.next()) {
+            continue;
+          }
+        }
+
+        //  DEBUG:
+        logger.fine("Creating index " + index[0] + "...");
+
+        try (PreparedStatement buildStmt = conn.prepareStatement(
+            String.format("CREATE INDEX owner.%s ON owner.%s",
+                          index[0], index[1]))) {
+          buildStmt.execute();
+        }
+      }
+
+      for (String[] constraint : CONSTRAINTS) {
+        checkConstraintStmt.setString(1, constraint[0].toUpperCase());
+        try (ResultSet checkSet = checkConstraintStmt.executeQuery()) {
+          if (checkSet.next()) {
+            continue;
+          }
+        }
+
+        try (PreparedStatement buildStmt = conn.prepareStatement(
+            String.format("ALTER TABLE owner.%s ADD CONSTRAINT %s %s",
+                          constraint[1], constraint[0], constraint[2]))) {
+          buildStmt.execute();
+        } catch (SQLException sql) {
+          //  Existing rows may break the rule; keep going without it.
+          logger.log(Level.WARNING, "Could not add constraint "
+                     + constraint[0] + ": " + sql.getMessage());
+        }
+      }
+      return true;
+    } catch (SQLException sql) {
+      logger.log(Level.WARNING, "SQL Exception: " + sql.getMessage());
+    }
+    return false;
+  }
+
+  //  { index name, table (columns) }, one per DAO access path.  Single
+  //  foreign key columns (e.g. person.workcenter_id) are already indexed by
+  //  their constraints.
+  private static final String[][] INDEXES = {
+    {"shiftdate_person_date_idx",
+     "shift_date (person_id, change_date)"},
+    {"personevent_person_dates_idx",
+     "person_event (person_id, start_date, end_date)"},
+    {"person_name_rank_idx",
+     "person (first_name, last_name, rank_id)"}
+  };
+
+  //  { constraint name, table, definition }
+  private static final String[][] CONSTRAINTS = {
+    {"personevent_dates_ck", "person_event",
+     "CHECK (end_date >= start_date)"}
+  };
+
   private static boolean buildObjectIdsTable(Connection conn) {
     String buildString =
         String.format("CREATE TABLE owner.objectids ("
@@ -527,15 +626,18 @@ public class DBBuild {
   }
 
   public static void testDatabase() {
-    Connection conn = DBConnectionPool.getPoolConnection();
-    
-    try {
+    try (Connection conn = DBConnectionPool.getPoolConnection()) {
       conn.prepareStatement("SELECT * FROM shift_date").execute();
+
+      //  Existing database: add any indexes it was built without
+      if (!buildIndexes(conn)) {
+        logger.log(Level.WARNING, "Could not update database indexes.");
+      }
     } catch (SQLException sql) {
       String errorMessage = sql.getMessage();
 
       if (errorMessage.endsWith("was not found.")
-          || errorMessage.endsWith("does not exist.")) {
+          || errorMessage.contains("does not exist")) {
         logger.log(Level.INFO, "Database does not exist, building database...");
         if (buildDatabase()) {
           logger.log(Level.INFO, "Database build successful.");
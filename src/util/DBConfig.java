@@ -0,0 +1,201 @@
+//  DBConfig.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, to choose between the network and embedded Derby drivers at startup
+ * 2026-10-18 : load() rejects a bad db.mode, db.port or db.pageCacheSize with an IllegalArgumentException naming the setting and its allowed values
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * Database settings, read once at startup.  Values come from
+ * <code>scheduleapp.properties</code> in the working directory (or the file
+ * named by <code>-Dscheduleapp.config</code>), and any of them can be
+ * overridden with a system property of the same name prefixed by
+ * <code>scheduleapp.</code>, e.g.
+ * <code>-Dscheduleapp.db.mode=embedded</code>.</p>
+ *
+ * <pre>
+ * db.mode          network (default) or embedded
+ * db.name          database name, Lobo_AMU
+ * db.host, db.port network server, localhost:1527
+ * db.dataDir       embedded only: directory holding the database,
+ *                  ~/.scheduleapp
+ * db.pageCacheSize embedded only: Derby page cache, in pages, 4000
+ * db.user, db.password
+ * </pre>
+ *
+ * <p>
+ * In embedded mode Derby runs inside the application, so queries skip the
+ * network client's serialization and socket round trips; only one
+ * application can open the database at a time.</p>
+ */
+public final class DBConfig {
+
+  public enum Mode { NETWORK, EMBEDDED }
+
+  private static final Logger logger =
+      Logger.getLogger(DBConfig.class.getName());
+
+  private static final String CONFIG_FILE = "scheduleapp.properties";
+  private static final String PREFIX = "scheduleapp.";
+
+  private final Mode mode;
+  private final String name;
+  private final String host;
+  private final int port;
+  private final String dataDir;
+  private final int pageCacheSize;
+  private final String user;
+  private final String password;
+
+  private DBConfig(Properties props) {
+    this.mode = getMode(props);
+    this.name = get(props, "db.name", "Lobo_AMU");
+    this.host = get(props, "db.host", "localhost");
+    this.port = getInt(props, "db.port", "1527", 1, 65535);
+    this.dataDir = get(props, "db.dataDir",
+        System.getProperty("user.home") + File.separator + ".scheduleapp");
+    this.pageCacheSize =
+        getInt(props, "db.pageCacheSize", "4000", 1, Integer.MAX_VALUE);
+    this.user = get(props, "db.user", "Owner");
+    this.password = get(props, "db.password", "password");
+  }
+
+  /**
+   * <p>
+   * Reads the configuration file, if there is one, and the system property
+   * overrides.</p>
+   *
+   * @throws IllegalArgumentException if <code>db.mode</code>,
+   *                                  <code>db.port</code> or
+   *                                  <code>db.pageCacheSize</code> is not
+   *                                  a value it can take
+   */
+  public static DBConfig load() {
+    Properties props = new Properties();
+    File file = new File(System.getProperty(PREFIX + "config", CONFIG_FILE));
+
+    if (file.isFile()) {
+      try (InputStream in = new FileInputStream(file)) {
+        props.load(in);
+        logger.fine("Loaded database settings from " + file);
+      } catch (IOException ioe) {
+        logger.log(Level.WARNING, "Could not read " + file + ": "
+                   + ioe.getMessage());
+      }
+    }
+    return new DBConfig(props);
+  }
+
+  private static String get(Properties props, String key, String fallback) {
+    return System.getProperty(PREFIX + key, props.getProperty(key, fallback))
+        .trim();
+  }
+
+  private static Mode getMode(Properties props) {
+    String value = get(props, "db.mode", "network");
+    for (Mode mode : Mode.values()) {
+      if (mode.name().equalsIgnoreCase(value)) {
+        return mode;
+      }
+    }
+    throw invalid("db.mode", value, "network or embedded");
+  }
+
+  private static int getInt(Properties props, String key, String fallback,
+                            int min, int max) {
+    String value = get(props, key, fallback);
+    try {
+      int number = Integer.parseInt(value);
+      if (number >= min && number <= max) {
+        return number;
+      }
+    } catch (NumberFormatException nfe) {
+      //  Reported below
+    }
+    throw invalid(key, value, "a whole number from " + min + " to " + max);
+  }
+
+  private static IllegalArgumentException invalid(String key, String value,
+                                                  String allowed) {
+    return new IllegalArgumentException(String.format(
+        "Invalid database setting %s (or -D%s%s) = \"%s\"; it must be %s.",
+        key, PREFIX, key, value, allowed));
+  }
+
+  /**
+   * <p>
+   * The JDBC URL for the configured mode.  The embedded database is
+   * created on first use.</p>
+   */
+  public String getUrl() {
+    if (mode == Mode.EMBEDDED) {
+      return "jdbc:derby:" + name + ";create=true";
+    }
+    return "jdbc:derby://" + host + ":" + port + "/" + name;
+  }
+
+  /**
+   * <p>
+   * Sets the Derby system properties the embedded engine reads when it
+   * boots (<code>derby.system.home</code> and
+   * <code>derby.storage.pageCacheSize</code>), unless they are already set
+   * on the command line.  Must run before the first embedded
+   * connection.</p>
+   */
+  void applyEngineProperties() {
+    if (mode != Mode.EMBEDDED) {
+      return;
+    }
+    if (System.getProperty("derby.system.home") == null) {
+      new File(dataDir).mkdirs();
+      System.setProperty("derby.system.home", dataDir);
+    }
+    if (System.getProperty("derby.storage.pageCacheSize") == null) {
+      System.setProperty("derby.storage.pageCacheSize",
+                         Integer.toString(pageCacheSize));
+    }
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  public String getDataDir() {
+    return dataDir;
+  }
+
+  public int getPageCacheSize() {
+    return pageCacheSize;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  public String getPassword() {
+    return password;
+  }
+
+  @Override
+  public String toString() {
+    return mode + " " + ((mode == Mode.EMBEDDED)
+        ? dataDir + File.separator + name + " (page cache " + pageCacheSize
+          + " pages)"
+        : host + ":" + port + "/" + name);
+  }
+}
@@ -2,15 +2,24 @@
 
 /**
  * Changelog:
- * 
+ *
  * 2016-03-01 : Added two final Strings to represent the connection URL from a localhost and remote context
  * 2016-03-01 : Changed the catch clause of getPoolConnection() to display the exception's message
- * 
+ *
  * 2016-03-05 : Changed the name of the database in CONNECTION_URL and CONNECTION_URL_REMOTE
  * 2016-03-05 : Changed the login username used in getPoolConnection()
- * 
+ *
  * 2016-03-24 : Replaced debug System.out calls with Logger calls
  * 2016-03-24 : Formatted to match Google Java Style
+ *
+ * 2026-10-18 : Replaced the per-call DriverManager connection with a bounded pool (validation, idle eviction, acquire timeout)
+ * 2026-10-18 : getPoolConnection() now throws a SQLException when the pool is exhausted instead of returning null
+ * 2026-10-18 : Removed the unused JNDI DataSource lookup (init() and getPoolConnectionOLD())
+ * 2026-10-18 : Added configure() to point the pool at another database
+ * 2026-10-18 : Statements are wrapped by QueryStats while it is recording
+ * 2026-10-18 : getPoolConnection() returns the UnitOfWork connection when one is open; added getUnsharedConnection()
+ * 2026-10-18 : The URL and credentials come from DBConfig (network or embedded mode) instead of CONNECTION_URL, CONNECTION_URL_REMOTE, USER and PASSWORD
+ * 2026-10-18 : A borrowed connection forgets statements already closed, so a long borrow does not hold on to every statement it made
  */
 
 /**
@@ -19,87 +28,379 @@
  */
 package util;
 
-//JDBC imports
-import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
-//JNDI imports
-import javax.naming.InitialContext;
-import javax.naming.Context;
-import javax.naming.NamingException;
-
+/**
+ * <p>
+ * A small, fixed-size pool of physical connections to the schedule database,
+ * through the network client or the embedded driver as set in
+ * <code>DBConfig</code>.  Callers keep using the plain
+ * <code>Connection</code> API; calling <code>close()</code> on a pooled
+ * connection hands it back to the pool instead of closing it.</p>
+ */
 public class DBConnectionPool extends Object {
 
-  private static final String CONNECTION_URL =
-      "jdbc:derby://localhost:1527/Lobo_AMU";
-  private static final String CONNECTION_URL_REMOTE =
-      "jdbc:derby://192.168.0.198:1527/Lobo_AMU";
+  private static final DBConfig config = DBConfig.load();
+
+  private static volatile String connectionUrl = config.getUrl();
+  private static volatile String user = config.getUser();
+  private static volatile String password = config.getPassword();
+
+  private static final int MAX_POOL_SIZE = 8;
+  private static final long ACQUIRE_TIMEOUT_MILLIS = 10_000;
+  private static final long IDLE_TIMEOUT_MILLIS = 5 * 60 * 1000;
+  private static final long VALIDATION_INTERVAL_MILLIS = 30 * 1000;
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+  //  Tracked statements past which the closed ones are dropped
+  private static final int STATEMENT_PRUNE_SIZE = 32;
 
   private static DBConnectionPool instance;
-  private static DataSource ds = null;
-  private static final String dbName = "jdbc/PollDatasource";
   private static final Logger logger = Logger.getLogger(DBConnectionPool.class.getName());
 
-  //Keep this package private.
-  DBConnectionPool() throws SQLException {
-    init();
+  static {
+    logger.info("Database: " + config);
+    config.applyEngineProperties();
+    if (config.getMode() == DBConfig.Mode.EMBEDDED) {
+      Runtime.getRuntime().addShutdownHook(
+          new Thread(DBConnectionPool::shutdownEmbedded, "Derby shutdown"));
+    }
   }
 
-  public static DBConnectionPool getInstance() throws SQLException {
+  private final Semaphore permits = new Semaphore(MAX_POOL_SIZE, true);
+  //  Most recently returned connection first; guarded by 'idle'
+  private final Deque<IdleConnection> idle = new ArrayDeque<>();
+
+  //Keep this package private.
+  DBConnectionPool() { }
+
+  public static synchronized DBConnectionPool getInstance() {
     if (instance == null) {
       instance = new DBConnectionPool();
     }
     return instance;
   }
 
-  public void init() throws SQLException {
+  /**
+   * <p>
+   * Points the pool at a different database (e.g. an embedded Derby
+   * database for benchmarks).  Idle connections to the old database are
+   * closed; connections still borrowed are closed when returned.</p>
+   *
+   * @param url       JDBC URL
+   * @param newUser
+   * @param newPassword
+   */
+  public static synchronized void configure(String url, String newUser,
+                                            String newPassword) {
+    connectionUrl = url;
+    user = newUser;
+    password = newPassword;
+    if (instance != null) {
+      instance.shutdown();
+    }
+  }
+
+  /**
+   * <p>
+   * Borrows a connection from the pool, opening a new physical connection if
+   * no idle one is available.  The caller must <code>close()</code> the
+   * returned connection to give it back.  If a <code>UnitOfWork</code> is
+   * open on this thread, its connection is returned instead.</p>
+   *
+   * @return a pooled connection
+   * @throws SQLException if no connection frees up within the acquire
+   *                      timeout, or a new connection cannot be opened
+   */
+  public static Connection getPoolConnection() throws SQLException {
+    Connection shared = UnitOfWork.sharedConnection();
+    if (shared != null) {
+      return shared;
+    }
+    return getInstance().acquire();
+  }
+
+  /**
+   * <p>
+   * Borrows a connection of its own, even inside a
+   * <code>UnitOfWork</code>, for work that must commit independently
+   * (e.g. reserving object IDs).</p>
+   *
+   * @return a pooled connection
+   * @throws SQLException as for <code>getPoolConnection()</code>
+   */
+  public static Connection getUnsharedConnection() throws SQLException {
+    return getInstance().acquire();
+  }
 
+  private Connection acquire() throws SQLException {
+    boolean acquired;
     try {
-      Context intContext = new InitialContext();
-      Context envContext = (Context) intContext.lookup("java:/comp/env");
-      ds = (DataSource) envContext.lookup(dbName);
-    } catch (NamingException e) {
-      logger.log(Level.WARNING, "Problem looking up " + dbName + ": " + e);
+      acquired = permits.tryAcquire(ACQUIRE_TIMEOUT_MILLIS,
+                                    TimeUnit.MILLISECONDS);
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection.");
     }
-  }
 
-  public static Connection getPoolConnectionOLD() throws SQLException {
-    Context context;
+    if (!acquired) {
+      throw new SQLException(String.format(
+          "Maximum number of connections in pool exceeded "
+          + "(%d in use, waited %d ms).",
+          MAX_POOL_SIZE, ACQUIRE_TIMEOUT_MILLIS));
+    }
 
     try {
-      context = new InitialContext();
-      ds = (DataSource) context.lookup("java:comp/env/jdbc/Schedule");
-    } catch (Exception e) {
-      logger.log(Level.WARNING, "DBConnectionPool.getPoolConnection() : Failed.");
+      Connection physical = takeIdle();
+      if (physical == null) {
+        physical = DriverManager.getConnection(connectionUrl, user, password);
+        logger.fine("Connection successful!");
+      }
+      return wrap(physical);
+    } catch (SQLException | RuntimeException e) {
+      permits.release();
+      logger.log(Level.WARNING, "A database error occurred. " + e.getMessage());
+      throw e;
     }
+  }
 
-    Connection conn = ds.getConnection();
-    if (conn == null) {
-      throw new SQLException(
-          "Maximum number of connections in pool exceeded.");
+  /**
+   * <p>
+   * Closes every idle physical connection.  Connections that are currently
+   * borrowed are closed when they are returned.</p>
+   */
+  public void shutdown() {
+    ArrayList<IdleConnection> toClose;
+    synchronized (idle) {
+      toClose = new ArrayList<>(idle);
+      idle.clear();
+    }
+    for (IdleConnection entry : toClose) {
+      closeQuietly(entry.connection);
     }
-    return conn;
   }
 
-  public static Connection getPoolConnection() {
-    String connectionURL = CONNECTION_URL;
-    Connection conn;
+  /**
+   * <p>
+   * Closes the pool and shuts the embedded Derby engine down cleanly, so
+   * the next start does not have to run crash recovery.</p>
+   */
+  private static void shutdownEmbedded() {
+    synchronized (DBConnectionPool.class) {
+      if (instance != null) {
+        instance.shutdown();
+      }
+    }
     try {
-      conn = DriverManager.getConnection(connectionURL, "Owner", "password");
-      logger.fine("Connection successful!");
-      return conn;
-    } catch (SQLException ex) {
-      String errorMessage = ex.getMessage();
-      logger.log(Level.WARNING, "A database error occurred. " + errorMessage);
+      DriverManager.getConnection("jdbc:derby:;shutdown=true");
+    } catch (SQLException se) {
+      //  Derby reports a clean engine shutdown as SQLState XJ015
+      if (!"XJ015".equals(se.getSQLState())) {
+        logger.log(Level.WARNING, se.getMessage());
+      }
+    }
+  }
+
+  private Connection takeIdle() {
+    long now = System.currentTimeMillis();
+    ArrayList<Connection> stale = new ArrayList<>();
+    Connection candidate = null;
+    long idleSince = now;
+
+    synchronized (idle) {
+      //  Evict from the least recently used end
+      Iterator<IdleConnection> oldestFirst = idle.descendingIterator();
+      while (oldestFirst.hasNext()) {
+        IdleConnection entry = oldestFirst.next();
+        if (now - entry.returnedAt < IDLE_TIMEOUT_MILLIS) {
+          break;
+        }
+        oldestFirst.remove();
+        stale.add(entry.connection);
+      }
+
+      IdleConnection entry = idle.pollFirst();
+      if (entry != null) {
+        candidate = entry.connection;
+        idleSince = entry.returnedAt;
+      }
+    }
 
-//            throw ex;
+    for (Connection conn : stale) {
+      closeQuietly(conn);
     }
 
+    while (candidate != null) {
+      if (now - idleSince < VALIDATION_INTERVAL_MILLIS || isValid(candidate)) {
+        return candidate;
+      }
+      closeQuietly(candidate);
+
+      synchronized (idle) {
+        IdleConnection entry = idle.pollFirst();
+        candidate = (entry == null) ? null : entry.connection;
+        idleSince = (entry == null) ? now : entry.returnedAt;
+      }
+    }
     return null;
   }
 
+  private void release(Connection physical, String url) {
+    try {
+      if (physical.isClosed()) {
+        return;
+      }
+      if (!url.equals(connectionUrl)) {
+        //  Borrowed before configure() switched databases
+        closeQuietly(physical);
+        return;
+      }
+      if (!physical.getAutoCommit()) {
+        physical.rollback();
+        physical.setAutoCommit(true);
+      }
+      synchronized (idle) {
+        idle.addFirst(new IdleConnection(physical, System.currentTimeMillis()));
+      }
+    } catch (SQLException se) {
+      logger.log(Level.WARNING,
+                 "Discarding connection that could not be reset: "
+                 + se.getMessage());
+      closeQuietly(physical);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private static boolean isValid(Connection conn) {
+    try {
+      return conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException se) {
+      return false;
+    }
+  }
+
+  private static void closeQuietly(Connection conn) {
+    try {
+      conn.close();
+    } catch (SQLException se) {
+      logger.log(Level.FINE, se.getMessage());
+    }
+  }
+
+  private Connection wrap(Connection physical) {
+    return (Connection) Proxy.newProxyInstance(
+        Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class},
+        new PooledConnectionHandler(physical));
+  }
+
+  private static boolean isClosed(Statement stmt) {
+    try {
+      return stmt.isClosed();
+    } catch (SQLException se) {
+      return true;
+    }
+  }
+
+  private static final class IdleConnection {
+    final Connection connection;
+    final long returnedAt;
+
+    IdleConnection(Connection connection, long returnedAt) {
+      this.connection = connection;
+      this.returnedAt = returnedAt;
+    }
+  }
+
+  /**
+   * Routes <code>close()</code> back to the pool and closes any statements
+   * the borrower left open, so the physical connection is clean for reuse.
+   * Statements the borrower has closed are dropped from the list each time
+   * it doubles, so it stays within twice the open statements.  Statements
+   * are wrapped by <code>QueryStats</code> while it is recording.
+   */
+  private final class PooledConnectionHandler implements InvocationHandler {
+    private final Connection physical;
+    private final String url = connectionUrl;
+    private final ArrayList<Statement> statements = new ArrayList<>();
+    private int pruneAt = STATEMENT_PRUNE_SIZE;
+    private boolean closed;
+
+    PooledConnectionHandler(Connection physical) {
+      this.physical = physical;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (!closed) {
+            closed = true;
+            for (Statement stmt : statements) {
+              try {
+                stmt.close();
+              } catch (SQLException se) {
+                logger.log(Level.FINE, se.getMessage());
+              }
+            }
+            statements.clear();
+            release(physical, url);
+          }
+          return null;
+        case "isClosed":
+          return closed || physical.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled" + physical;
+        default:
+          break;
+      }
+
+      if (closed) {
+        throw new SQLException("Connection has been returned to the pool.");
+      }
+
+      Object result;
+      try {
+        result = method.invoke(physical, args);
+      } catch (InvocationTargetException ite) {
+        throw ite.getCause();
+      }
+      if (result instanceof Statement) {
+        if (statements.size() >= pruneAt) {
+          statements.removeIf(DBConnectionPool::isClosed);
+          pruneAt = Math.max(STATEMENT_PRUNE_SIZE, statements.size() * 2);
+        }
+        statements.add((Statement) result);
+        if (QueryStats.isRecording()) {
+          String sql = (args != null && args.length > 0
+                        && args[0] instanceof String) ? (String) args[0]
+                                                      : null;
+          result = QueryStats.instrument((Statement) result,
+                                         method.getReturnType(), sql);
+        }
+      }
+      return result;
+    }
+  }
+
 }
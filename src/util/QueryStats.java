@@ -0,0 +1,471 @@
+//  QueryStats.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, per-statement counts, latencies, rows and callers for pooled connections, plus query budgets
+ * 2026-10-18 : The MBean is registered when the instance is created, not on first setEnabled(true), so recording can be switched on over JMX
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package util;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * Records what the DAOs send to the database.  When enabled, statements
+ * handed out by <code>DBConnectionPool</code> are wrapped so every
+ * <code>execute*()</code> call is counted per SQL text and calling method,
+ * with a latency histogram and the number of rows read back.  Disabled (the
+ * default), statements are not wrapped and cost nothing extra.</p>
+ *
+ * <p>
+ * Enable with <code>-Dscheduleapp.queryStats=true</code>,
+ * <code>setEnabled(true)</code> or over JMX
+ * (<code>scheduleapp:type=QueryStats</code>, registered as soon as the
+ * first statement is prepared), and read the results with
+ * <code>dumpReport()</code>.</p>
+ *
+ * <p>
+ * A <code>Budget</code> caps the statements one piece of work may run on
+ * the current thread, to catch N+1 query patterns:</p>
+ *
+ * <pre>
+ * try (QueryStats.Budget budget = QueryStats.budget("week view", 5)) {
+ *   shiftDateDAO.getWeek(person, monday);
+ * }
+ * </pre>
+ *
+ * <p>
+ * Budgets count even while global recording is off.</p>
+ */
+public final class QueryStats implements QueryStatsMXBean {
+
+  private static final Logger logger =
+      Logger.getLogger(QueryStats.class.getName());
+
+  private static final String OBJECT_NAME = "scheduleapp:type=QueryStats";
+
+  //  Latency buckets: bucket i holds calls of under 2^i microseconds
+  private static final int BUCKETS = 32;
+
+  private static final ThreadLocal<Deque<Budget>> budgets =
+      ThreadLocal.withInitial(ArrayDeque::new);
+
+  private static final QueryStats instance = new QueryStats();
+
+  private volatile boolean enabled;
+  private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+  private QueryStats() {
+    this.enabled = Boolean.getBoolean("scheduleapp.queryStats");
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+          .registerMBean(this, new ObjectName(OBJECT_NAME));
+    } catch (Exception e) {
+      logger.log(Level.WARNING, "Could not register " + OBJECT_NAME
+                 + ": " + e.getMessage());
+    }
+  }
+
+  public static QueryStats getInstance() {
+    return instance;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @Override
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  @Override
+  public long getStatementCount() {
+    long total = 0;
+    for (Entry entry : entries.values()) {
+      total += entry.count.sum();
+    }
+    return total;
+  }
+
+  @Override
+  public long getRowCount() {
+    long total = 0;
+    for (Entry entry : entries.values()) {
+      total += entry.rows.sum();
+    }
+    return total;
+  }
+
+  @Override
+  public double getTotalMillis() {
+    long total = 0;
+    for (Entry entry : entries.values()) {
+      total += entry.nanos.sum();
+    }
+    return total / 1e6;
+  }
+
+  @Override
+  public int getDistinctStatements() {
+    HashMap<String, Boolean> sql = new HashMap<>();
+    for (Key key : entries.keySet()) {
+      sql.put(key.sql, Boolean.TRUE);
+    }
+    return sql.size();
+  }
+
+  @Override
+  public void reset() {
+    entries.clear();
+  }
+
+  @Override
+  public String dumpReport() {
+    List<Map.Entry<Key, Entry>> rows = new ArrayList<>(entries.entrySet());
+    rows.sort((a, b) -> Long.compare(b.getValue().nanos.sum(),
+                                     a.getValue().nanos.sum()));
+
+    StringBuilder report = new StringBuilder();
+    report.append(String.format(Locale.ROOT,
+        "%d statements, %d rows, %.1f ms%n",
+        getStatementCount(), getRowCount(), getTotalMillis()));
+    report.append(String.format(Locale.ROOT,
+        "%8s %9s %10s %8s %8s %8s  %s%n",
+        "count", "rows", "total ms", "mean ms", "p50 ms", "p99 ms",
+        "caller / statement"));
+
+    for (Map.Entry<Key, Entry> row : rows) {
+      Entry entry = row.getValue();
+      long count = entry.count.sum();
+      double totalMillis = entry.nanos.sum() / 1e6;
+      report.append(String.format(Locale.ROOT,
+          "%8d %9d %10.1f %8.3f %8.3f %8.3f  %s%n%56s  %s%n",
+          count, entry.rows.sum(), totalMillis,
+          (count == 0) ? 0 : totalMillis / count,
+          entry.percentileMillis(50), entry.percentileMillis(99),
+          row.getKey().caller, "", abbreviate(row.getKey().sql)));
+    }
+    return report.toString();
+  }
+
+  public void dumpReport(PrintStream out) {
+    out.print(dumpReport());
+    out.flush();
+  }
+
+  /**
+   * <p>
+   * Opens a query budget on the current thread.  Closing it throws
+   * <code>IllegalStateException</code> if more than
+   * <code>maxStatements</code> ran in between, listing the statements
+   * that were repeated.</p>
+   *
+   * @param name          what the budget covers, for the message
+   * @param maxStatements
+   * @return the budget; use it in a try-with-resources block
+   */
+  public static Budget budget(String name, int maxStatements) {
+    Budget budget = new Budget(name, maxStatements);
+    budgets.get().push(budget);
+    return budget;
+  }
+
+  /**
+   * <p>
+   * Whether statements created now should be wrapped: recording is on, or
+   * the current thread has a budget open.</p>
+   */
+  static boolean isRecording() {
+    return instance.enabled || !budgets.get().isEmpty();
+  }
+
+  /**
+   * <p>
+   * Wraps a statement so its executions are recorded.</p>
+   *
+   * @param statement the driver's statement
+   * @param type      the JDBC interface to expose (<code>Statement</code>,
+   *                  <code>PreparedStatement</code> or
+   *                  <code>CallableStatement</code>)
+   * @param sql       the prepared SQL, or <code>null</code> for a plain
+   *                  <code>Statement</code>
+   */
+  static Statement instrument(Statement statement, Class<?> type,
+                              String sql) {
+    return (Statement) Proxy.newProxyInstance(
+        type.getClassLoader(),
+        new Class<?>[] {type},
+        new StatementHandler(statement, sql));
+  }
+
+  /**
+   * @return the statistics entry, or <code>null</code> if only budgets
+   *         are counting
+   */
+  private Entry record(String sql, String caller, long nanos) {
+    for (Budget budget : budgets.get()) {
+      budget.record(sql);
+    }
+    if (!enabled) {
+      return null;
+    }
+
+    Entry entry = entries.computeIfAbsent(new Key(sql, caller),
+                                          key -> new Entry());
+    entry.count.increment();
+    entry.nanos.add(nanos);
+    long micros = nanos / 1000;
+    int bucket = Math.min(BUCKETS - 1,
+                          64 - Long.numberOfLeadingZeros(micros));
+    entry.histogram.incrementAndGet(bucket);
+    return entry;
+  }
+
+  /**
+   * <p>
+   * The first stack frame outside the JDBC plumbing, as
+   * <code>Class.method</code>; normally the DAO method.</p>
+   */
+  private static String caller() {
+    for (StackTraceElement frame : new Throwable().getStackTrace()) {
+      String className = frame.getClassName();
+      if (className.startsWith("java.") || className.startsWith("javax.")
+          || className.startsWith("sun.") || className.startsWith("com.sun.")
+          || className.startsWith("jdk.")
+          || className.startsWith("org.apache.derby.")
+          || className.startsWith("com.sun.proxy.")
+          || className.startsWith(QueryStats.class.getName())
+          || className.startsWith(DBConnectionPool.class.getName())) {
+        continue;
+      }
+      String simpleName = className.substring(className.lastIndexOf('.') + 1);
+      return simpleName + "." + frame.getMethodName();
+    }
+    return "?";
+  }
+
+  private static String abbreviate(String sql) {
+    String oneLine = sql.replaceAll("\\s+", " ").trim();
+    return (oneLine.length() <= 120) ? oneLine
+                                     : oneLine.substring(0, 117) + "...";
+  }
+
+  /**
+   * <p>
+   * A statement cap for one piece of work on one thread.  See
+   * <code>QueryStats.budget()</code>.</p>
+   */
+  public static final class Budget implements AutoCloseable {
+    private final String name;
+    private final int maxStatements;
+    private final Map<String, Integer> bySql = new HashMap<>();
+    private int count;
+
+    private Budget(String name, int maxStatements) {
+      this.name = name;
+      this.maxStatements = maxStatements;
+    }
+
+    private void record(String sql) {
+      count++;
+      bySql.merge(sql, 1, Integer::sum);
+    }
+
+    /** Statements run since the budget was opened. */
+    public int getCount() {
+      return count;
+    }
+
+    @Override
+    public void close() {
+      budgets.get().remove(this);
+      if (count <= maxStatements) {
+        return;
+      }
+
+      StringBuilder message = new StringBuilder(String.format(
+          "Query budget for %s exceeded: %d statements, limit %d.",
+          name, count, maxStatements));
+      for (Map.Entry<String, Integer> entry : bySql.entrySet()) {
+        if (entry.getValue() > 1) {
+          message.append(String.format(Locale.ROOT, "%n  %d x %s",
+                                       entry.getValue(),
+                                       abbreviate(entry.getKey())));
+        }
+      }
+      throw new IllegalStateException(message.toString());
+    }
+  }
+
+  private static final class Key {
+    final String sql;
+    final String caller;
+
+    Key(String sql, String caller) {
+      this.sql = sql;
+      this.caller = caller;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return sql.equals(key.sql) && caller.equals(key.caller);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * sql.hashCode() + caller.hashCode();
+    }
+  }
+
+  private static final class Entry {
+    final LongAdder count = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+    final LongAdder rows = new LongAdder();
+    final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    /** Upper bound of the bucket holding the percentile. */
+    double percentileMillis(double percentile) {
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        total += histogram.get(i);
+      }
+      long target = (long) Math.ceil(percentile / 100 * total);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += histogram.get(i);
+        if (seen >= target && seen > 0) {
+          return (1L << i) / 1000.0;
+        }
+      }
+      return 0;
+    }
+  }
+
+  private static final class StatementHandler implements InvocationHandler {
+    private final Statement statement;
+    private final String sql;
+
+    StatementHandler(Statement statement, String sql) {
+      this.statement = statement;
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+      String name = method.getName();
+      Entry entry = null;
+      Object result;
+
+      if (name.startsWith("execute")) {
+        String text = (args != null && args.length > 0
+                       && args[0] instanceof String) ? (String) args[0] : sql;
+        if (text == null) {
+          text = "(batch)";
+        }
+        long start = System.nanoTime();
+        try {
+          result = forward(method, args);
+        } finally {
+          entry = instance.record(text, caller(), System.nanoTime() - start);
+        }
+      } else {
+        switch (name) {
+          case "equals":
+            return proxy == args[0];
+          case "hashCode":
+            return System.identityHashCode(proxy);
+          case "toString":
+            return "Instrumented" + statement;
+          default:
+            result = forward(method, args);
+            break;
+        }
+      }
+
+      if (result instanceof ResultSet && entry != null) {
+        return Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(),
+            new Class<?>[] {ResultSet.class},
+            new ResultSetHandler((ResultSet) result, entry));
+      }
+      return result;
+    }
+
+    private Object forward(Method method, Object[] args) throws Throwable {
+      try {
+        return method.invoke(statement, args);
+      } catch (InvocationTargetException ite) {
+        throw ite.getCause();
+      }
+    }
+  }
+
+  /**
+   * Counts rows as they are read.
+   */
+  private static final class ResultSetHandler implements InvocationHandler {
+    private final ResultSet resultSet;
+    private final Entry entry;
+
+    ResultSetHandler(ResultSet resultSet, Entry entry) {
+      this.resultSet = resultSet;
+      this.entry = entry;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+      switch (method.getName()) {
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          break;
+      }
+
+      Object result;
+      try {
+        result = method.invoke(resultSet, args);
+      } catch (InvocationTargetException ite) {
+        throw ite.getCause();
+      }
+      if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+        entry.rows.increment();
+      }
+      return result;
+    }
+  }
+
+}
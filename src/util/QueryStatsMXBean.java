@@ -0,0 +1,40 @@
+//  QueryStatsMXBean.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, the JMX view of QueryStats
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package util;
+
+/**
+ * <p>
+ * JMX management interface for <code>QueryStats</code>, registered as
+ * <code>scheduleapp:type=QueryStats</code>.</p>
+ */
+public interface QueryStatsMXBean {
+
+  boolean isEnabled();
+
+  void setEnabled(boolean enabled);
+
+  /** Statements executed since the last reset. */
+  long getStatementCount();
+
+  /** Rows read through result sets since the last reset. */
+  long getRowCount();
+
+  /** Time spent in <code>execute*()</code> calls since the last reset. */
+  double getTotalMillis();
+
+  /** Distinct SQL statements seen since the last reset. */
+  int getDistinctStatements();
+
+  /** The text report, one line per statement and calling method. */
+  String dumpReport();
+
+  void reset();
+}
@@ -0,0 +1,261 @@
+//  UnitOfWork.java
+
+/**
+ * Changelog:
+ * 2026-10-18 : Created file, to run several DAO writes on one connection and commit them together
+ * 2026-10-18 : Added afterCommit(), so in-memory indexes only see committed writes
+ * 2026-10-18 : commit() unbinds the unit from the thread before running the afterCommit() actions
+ */
+
+/**
+ * @author Alan Johnson
+ */
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>
+ * A database transaction bound to the current thread.  While a unit of work
+ * is open, every <code>DBConnectionPool.getPoolConnection()</code> call on
+ * that thread returns the unit's connection, so existing DAO methods join
+ * the transaction without changes.  Nothing is committed until
+ * <code>commit()</code>; closing an uncommitted unit rolls everything
+ * back.</p>
+ *
+ * <pre>
+ * try (UnitOfWork unit = UnitOfWork.begin()) {
+ *   personDAO.insert(person);
+ *   shiftDateDAO.addStartDate(person, date);
+ *   unit.commit();
+ * }
+ * </pre>
+ *
+ * <p>
+ * Inside the unit, <code>close()</code>, <code>commit()</code> and
+ * <code>setAutoCommit()</code> on the shared connection do nothing, and
+ * <code>rollback()</code> dooms the whole unit.  A <code>begin()</code>
+ * while a unit is already open joins it; the work is committed only when
+ * the outermost unit commits, and an inner unit closed without committing
+ * rolls back the outer one too.</p>
+ */
+public final class UnitOfWork implements AutoCloseable {
+
+  private static final Logger logger =
+      Logger.getLogger(UnitOfWork.class.getName());
+
+  private static final ThreadLocal<Transaction> active = new ThreadLocal<>();
+
+  private final Transaction transaction;
+  private final boolean outermost;
+  private boolean committed;
+  private boolean closed;
+
+  private UnitOfWork(Transaction transaction, boolean outermost) {
+    this.transaction = transaction;
+    this.outermost = outermost;
+  }
+
+  /**
+   * <p>
+   * Opens a unit of work on the current thread, or joins the one already
+   * open.</p>
+   *
+   * @return the unit; use it in a try-with-resources block
+   * @throws SQLException if no connection is available
+   */
+  public static UnitOfWork begin() throws SQLException {
+    Transaction transaction = active.get();
+    if (transaction != null) {
+      return new UnitOfWork(transaction, false);
+    }
+
+    Connection conn = DBConnectionPool.getUnsharedConnection();
+    try {
+      conn.setAutoCommit(false);
+    } catch (SQLException se) {
+      conn.close();
+      throw se;
+    }
+    transaction = new Transaction(conn);
+    active.set(transaction);
+    return new UnitOfWork(transaction, true);
+  }
+
+  /**
+   * <p>
+   * The connection of the unit of work open on this thread, wrapped so the
+   * DAO cannot close or commit it, or <code>null</code> if there is
+   * none.</p>
+   */
+  static Connection sharedConnection() {
+    Transaction transaction = active.get();
+    return (transaction == null) ? null : transaction.shared;
+  }
+
+  /**
+   * <p>
+   * Runs <code>action</code> once the current work is committed: at once if
+   * no unit of work is open on this thread, otherwise after the outermost
+   * unit commits.  If the unit rolls back, the action is dropped.</p>
+   *
+   * @param action
+   */
+  public static void afterCommit(Runnable action) {
+    Transaction transaction = active.get();
+    if (transaction == null) {
+      action.run();
+    } else {
+      transaction.afterCommit.add(action);
+    }
+  }
+
+  public Connection getConnection() {
+    return transaction.shared;
+  }
+
+  /**
+   * <p>
+   * Commits the work, if this is the outermost unit; an inner unit only
+   * records that its part succeeded.  Once the outermost unit commits it is
+   * no longer bound to the thread, so the <code>afterCommit()</code>
+   * actions, and any DAO calls after <code>commit()</code>, run on their
+   * own connections.</p>
+   *
+   * @throws SQLException if the commit fails, or an inner unit or DAO
+   *                      already rolled back
+   */
+  public void commit() throws SQLException {
+    if (closed) {
+      throw new SQLException("Unit of work is already closed.");
+    }
+    if (!outermost) {
+      committed = true;
+      return;
+    }
+    if (transaction.rollbackOnly) {
+      throw new SQLException("Unit of work was rolled back.");
+    }
+    transaction.connection.commit();
+    committed = true;
+
+    //  Unbind first: DAO calls made by the actions (or after this) must not
+    //  get the committed connection, whose writes close() would throw away
+    if (active.get() == transaction) {
+      active.remove();
+    }
+    List<Runnable> actions = new ArrayList<>(transaction.afterCommit);
+    transaction.afterCommit.clear();
+    for (Runnable action : actions) {
+      try {
+        action.run();
+      } catch (RuntimeException re) {
+        logger.log(Level.WARNING, "After-commit action failed", re);
+      }
+    }
+  }
+
+  /**
+   * <p>
+   * Ends the unit.  The outermost unit rolls back if it was not committed
+   * and returns the connection to the pool.</p>
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+
+    if (!outermost) {
+      if (!committed) {
+        transaction.rollbackOnly = true;
+      }
+      return;
+    }
+
+    if (active.get() == transaction) {
+      active.remove();
+    }
+    try {
+      if (!committed) {
+        transaction.connection.rollback();
+        logger.fine("Unit of work rolled back");
+      }
+    } catch (SQLException se) {
+      logger.log(Level.WARNING, "Rollback failed: " + se.getMessage());
+    } finally {
+      try {
+        transaction.connection.close();
+      } catch (SQLException se) {
+        logger.log(Level.WARNING, se.getMessage());
+      }
+    }
+  }
+
+  private static final class Transaction {
+    final Connection connection;
+    final Connection shared;
+    final List<Runnable> afterCommit = new ArrayList<>();
+    boolean rollbackOnly;
+
+    Transaction(Connection connection) {
+      this.connection = connection;
+      this.shared = (Connection) Proxy.newProxyInstance(
+          Connection.class.getClassLoader(),
+          new Class<?>[] {Connection.class},
+          new SharedConnectionHandler(this));
+    }
+  }
+
+  /**
+   * Hands the unit's connection to DAOs, keeping transaction control with
+   * the unit.
+   */
+  private static final class SharedConnectionHandler
+      implements InvocationHandler {
+    private final Transaction transaction;
+
+    SharedConnectionHandler(Transaction transaction) {
+      this.transaction = transaction;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+        throws Throwable {
+      switch (method.getName()) {
+        case "close":
+        case "commit":
+        case "setAutoCommit":
+          return null;
+        case "rollback":
+          transaction.rollbackOnly = true;
+          return null;
+        case "getAutoCommit":
+          return false;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        default:
+          break;
+      }
+
+      try {
+        return method.invoke(transaction.connection, args);
+      } catch (InvocationTargetException ite) {
+        throw ite.getCause();
+      }
+    }
+  }
+
+}
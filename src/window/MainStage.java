@@ -31,35 +31,60 @@
  * 
  * 2016-06-17 : Changed `display()` to set `logger` to `INFO` level
  * 2016-06-17 : The `editPersonButton` now sends the proper person to be found
+ * 
+ * 2026-10-18 : populateShiftViewTable() loads the whole shift grid with ShiftDateDAO.getShiftGrid() instead of one getWeek() per person
+ * 2026-10-18 : populateShiftViewTable() loads the week's events with PersonEventDAO.getEventsForRange() instead of one getWeekEvents() per person
+ * 2026-10-18 : populateShiftViewTable() runs the database work as a background Task (loadShiftViewRows()), cancels superseded loads, and swaps the result in with showShiftView()
+ * 2026-10-18 : Added loadingIndicator over outputTable while a load is running
+ * 2026-10-18 : Added the 'Import Roster' button and importRoster(), which runs RosterImporter in the background
+ * 2026-10-18 : loadShiftViewRows() builds its rows from WeekGridCache, so switching back to a workcenter and shift already shown runs no lookups
+ * 2026-10-18 : outputTable, its columns and the background load are typed on ObservableList<?> rows instead of raw types
+ * 2026-10-18 : Added the 'Refresh' button and refreshTimer, which re-read the database with Caches.refresh() so other clients' changes are shown
+ * 2026-10-18 : A load checks for cancellation before building its week; a superseded load that fails shows no alert; the import shows progress on its own importIndicator
  */
 package window;
 
 import com.sun.javafx.collections.ObservableListWrapper;
+import domain.Caches;
 import domain.Person;
 import domain.PersonDAO;
-import domain.PersonEventDAO;
 import domain.RankDAO;
+import domain.RosterImporter;
 import domain.ShiftDAO;
-import domain.ShiftDateDAO;
+import domain.WeekGridCache;
 import domain.WorkcenterDAO;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Platform;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.geometry.Orientation;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.Separator;
@@ -73,11 +98,14 @@ import javafx.scene.control.TableView;
 import javafx.scene.control.ToggleGroup;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
+import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Text;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.util.Callback;
+import javafx.util.Duration;
 import window.modal.AlertBox;
 
 /**
@@ -97,7 +125,25 @@ public class MainStage {
   private static Logger logger = Logger.getLogger(MainStage.class.getName());
   private static TabPane tabPane;
   private static HBox filtersBox;
-  private static TableView outputTable;
+  private static TableView<ObservableList<?>> outputTable;
+  private static ProgressIndicator loadingIndicator;
+  private static ProgressIndicator importIndicator;
+
+  // ==========================   Loading   ========================
+  private static final ExecutorService loadExecutor =
+      Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MainStage-loader");
+        thread.setDaemon(true);
+        return thread;
+      });
+  private static Task<ObservableList<ObservableList<?>>> currentLoad;
+  private static final int MAX_IMPORT_ERRORS_SHOWN = 20;
+
+  //  How often to re-read the database, for changes made by other clients;
+  //  0 turns it off
+  private static final int REFRESH_SECONDS =
+      Integer.getInteger("scheduleapp.refreshSeconds", 300);
+  private static Timeline refreshTimer;
 
   // =========================   Schedule   ========================
   private static Tab scheduleTab;
@@ -117,19 +163,18 @@ public class MainStage {
    * @param columnTitle     Indicates the title of the column being built
    * @return                Factory-made <code>TableColumn</code> built from the inputs
    */
-  private TableColumn<ObservableList<StringProperty>, String> createColumn(
+  private TableColumn<ObservableList<?>, String> createColumn(
           final int columnIndex, String columnTitle) {
-    TableColumn<ObservableList<StringProperty>, String> column =
-        new TableColumn<>();
+    TableColumn<ObservableList<?>, String> column = new TableColumn<>();
     String title = columnTitle;
 
     column.setText(title);
     column.setCellValueFactory((
-        CellDataFeatures<ObservableList<StringProperty>, String>
-            cellDataFeatures) -> cellDataFeatures.getValue().get(columnIndex));
+        CellDataFeatures<ObservableList<?>, String> cellDataFeatures)
+            -> (StringProperty) cellDataFeatures.getValue().get(columnIndex));
     
     column.setCellFactory(thisColumn -> {
-      return new TableCell<ObservableList<StringProperty>, String>() {
+      return new TableCell<ObservableList<?>, String>() {
         @Override
         protected void updateItem(String item, boolean empty) {
           super.updateItem(item, empty);
@@ -182,24 +227,22 @@ public class MainStage {
     return column;
   }
   
-  private TableColumn<ObservableList<ObservableList<StringProperty>>, String> createEventColumn(
+  private TableColumn<ObservableList<?>, String> createEventColumn(
           final int columnIndex, String columnTitle) {
-    TableColumn<ObservableList<ObservableList<StringProperty>>, String> column
-        = new TableColumn<>();
+    TableColumn<ObservableList<?>, String> column = new TableColumn<>();
     String title = columnTitle;
 
     column.setText(title);
     column.setCellValueFactory((
-        CellDataFeatures<ObservableList<ObservableList<StringProperty>>,
-            String> cellDataFeatures) -> {
+        CellDataFeatures<ObservableList<?>, String> cellDataFeatures) -> {
       
-      ObservableList<StringProperty> list
-          = cellDataFeatures.getValue().get(columnIndex);
+      ObservableList<?> list
+          = (ObservableList<?>) cellDataFeatures.getValue().get(columnIndex);
           String description = "";
           if (list != null) {
-            for (StringProperty item : list) {
+            for (Object item : list) {
 //              logger.info("item = " + item.getValue());
-              description += item.getValue() + "\n";
+              description += ((StringProperty) item).getValue() + "\n";
             }
           }
           ObservableValue<String> retval = new SimpleStringProperty(description);
@@ -208,7 +251,7 @@ public class MainStage {
         });
 
     column.setCellFactory(thisColumn -> {
-      return new TableCell<ObservableList<ObservableList<StringProperty>>, String>() {
+      return new TableCell<ObservableList<?>, String>() {
         @Override
         protected void updateItem(String item, boolean empty) {
           super.updateItem(item, empty);
@@ -284,7 +327,8 @@ public class MainStage {
     tabPane.getSelectionModel().select(scheduleTab);
     rootLayout.setTop(tabPane);
     VBox displayBox = new VBox();
-    displayBox.getChildren().addAll(filtersBox, outputTable);
+    StackPane tableBox = new StackPane(outputTable, loadingIndicator);
+    displayBox.getChildren().addAll(filtersBox, tableBox);
     rootLayout.setCenter(displayBox);
 
         // =============================  Finish   ============================
@@ -292,8 +336,17 @@ public class MainStage {
     window.initModality(Modality.APPLICATION_MODAL);
     populateShiftViewTable();
     resize();
+    if (REFRESH_SECONDS > 0) {
+      refreshTimer = new Timeline(new KeyFrame(
+          Duration.seconds(REFRESH_SECONDS), e -> refreshData(false)));
+      refreshTimer.setCycleCount(Animation.INDEFINITE);
+      refreshTimer.play();
+    }
 //        window.setMaximized(true);
     window.showAndWait();
+    if (refreshTimer != null) {
+      refreshTimer.stop();
+    }
 
   }  //  end method display(Person)
   
@@ -336,7 +389,15 @@ public class MainStage {
       EditPersonStage.display(person);
     });
 
-    manageOptionsBox.getChildren().addAll(addPersonButton, editPersonButton);
+    Button importRosterButton = new Button("Import Roster");
+    importRosterButton.setOnAction(e -> importRoster());
+
+    importIndicator = new ProgressIndicator();
+    importIndicator.setMaxSize(24, 24);
+    importIndicator.setVisible(false);
+
+    manageOptionsBox.getChildren().addAll(addPersonButton, editPersonButton,
+                                          importRosterButton, importIndicator);
     manageOptionsBox.getStyleClass().addAll("options");
 
     //           ===========  Finalize Schedule Tab   ===========
@@ -353,7 +414,10 @@ public class MainStage {
 
     //      =====================  Options Row   =====================
     scheduleOptionsBox = new HBox(10);
-    scheduleOptionsBox.getChildren().addAll(new Label("Options..."));
+    Button refreshButton = new Button("Refresh");
+    refreshButton.setOnAction(e -> refreshData(true));
+    scheduleOptionsBox.getChildren().addAll(new Label("Options..."),
+                                            refreshButton);
     scheduleOptionsBox.getStyleClass().addAll("options");
 
     //           ===========  Finalize Schedule Tab   ===========
@@ -425,68 +489,190 @@ public class MainStage {
     filtersBox.getStyleClass().add("pane");
   }
 
+  /**
+   * <p>
+   * Asks for a roster CSV and imports it with <code>RosterImporter</code> on
+   * <code>loadExecutor</code>, showing progress on
+   * <code>importIndicator</code>.  Reports the result, including rejected
+   * rows, and reloads the schedule.</p>
+   */
+  private void importRoster() {
+    FileChooser chooser = new FileChooser();
+    chooser.setTitle("Import Roster");
+    chooser.getExtensionFilters().add(
+        new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+    File file = chooser.showOpenDialog(window);
+    if (file == null) {
+      return;
+    }
+
+    Task<RosterImporter.Result> importTask =
+        new Task<RosterImporter.Result>() {
+      @Override
+      protected RosterImporter.Result call() throws IOException {
+        try (Reader reader = Files.newBufferedReader(file.toPath(),
+                                                     StandardCharsets.UTF_8)) {
+          return new RosterImporter().importCsv(
+              reader, (done, total) -> updateProgress(done, total));
+        }
+      }
+    };
+
+    importTask.setOnSucceeded(e -> {
+      RosterImporter.Result result = importTask.getValue();
+      StringBuilder message = new StringBuilder(String.format(
+          "Imported %d people.", result.getImported()));
+      List<RosterImporter.RowError> errors = result.getErrors();
+      if (!errors.isEmpty()) {
+        message.append(String.format("%n%d rows were rejected:",
+                                     errors.size()));
+        for (int i = 0; i < Math.min(MAX_IMPORT_ERRORS_SHOWN, errors.size());
+             i++) {
+          message.append('\n').append(errors.get(i));
+        }
+        if (errors.size() > MAX_IMPORT_ERRORS_SHOWN) {
+          message.append("\n...");
+        }
+      }
+      AlertBox.display("Import Roster", message.toString());
+      populateShiftViewTable();
+    });
+    importTask.setOnFailed(e -> {
+      Throwable error = importTask.getException();
+      logger.log(Level.WARNING, "Could not import " + file, error);
+      AlertBox.display("Import Error", "Could not import the roster.\n"
+                       + (error == null ? "" : error.getMessage()));
+    });
+
+    importIndicator.visibleProperty().bind(importTask.runningProperty());
+    importIndicator.progressProperty().bind(importTask.progressProperty());
+    loadExecutor.execute(importTask);
+  }
+
+  /**
+   * <p>
+   * Re-reads the database with <code>Caches.refresh()</code> on
+   * <code>loadExecutor</code>, so changes other clients made are shown, and
+   * reloads the schedule.  Failures are logged, and also reported if
+   * <code>showErrors</code> (the 'Refresh' button, not the timer).</p>
+   */
+  private void refreshData(boolean showErrors) {
+    Task<Void> refresh = new Task<Void>() {
+      @Override
+      protected Void call() {
+        Caches.refresh();
+        return null;
+      }
+    };
+
+    refresh.setOnSucceeded(e -> populateShiftViewTable());
+    refresh.setOnFailed(e -> {
+      Throwable error = refresh.getException();
+      logger.log(Level.WARNING, "Could not refresh the schedule.", error);
+      if (showErrors) {
+        AlertBox.display("Refresh Error", "Could not refresh the schedule.\n"
+                         + (error == null ? "" : error.getMessage()));
+      }
+    });
+    loadExecutor.execute(refresh);
+  }
+
   // ============================   Output  =============================
+  /**
+   * <p>
+   * Reloads <code>outputTable</code> for the current shift and workcenter
+   * filters.  The database work runs as a background <code>Task</code> on
+   * <code>loadExecutor</code>; a newer call cancels a load that is still
+   * running, and the finished columns and rows are swapped into the table
+   * together on the JavaFX thread.</p>
+   */
   private void populateShiftViewTable() {
     logger.fine("Entering MainStage.populateShiftViewTable()");
-    
-    ArrayList<Person> people;
+
+    final int loadShift = shift;
+    final int loadWorkcenter = workcenter;
     //  TODO: Add date parameter and use that for the following value:
-    LocalDate today = LocalDate.now();
-    DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("d MMM uuuu");
-    ObservableList columns = outputTable.getColumns();
-    if (columns != null) {
-      columns.clear();
+    final LocalDate today = LocalDate.now();
+
+    if (currentLoad != null) {
+      currentLoad.cancel();
     }
-    int columnOffset = 1;  // this is the index of the first date column
-    
+
+    Task<ObservableList<ObservableList<?>>> load =
+        new Task<ObservableList<ObservableList<?>>>() {
+      @Override
+      protected ObservableList<ObservableList<?>> call() {
+        return loadShiftViewRows(loadShift, loadWorkcenter, today, this);
+      }
+    };
+
+    load.setOnSucceeded(e -> {
+      if (load == currentLoad) {
+        showShiftView(loadShift, loadWorkcenter, today, load.getValue());
+        currentLoad = null;
+      }
+    });
+    load.setOnFailed(e -> {
+      if (load != currentLoad) {
+        return;  //  superseded; its result was not wanted
+      }
+      currentLoad = null;
+      Throwable error = load.getException();
+      logger.log(Level.WARNING, "Could not load the schedule.", error);
+      AlertBox.display("Schedule Error", "Could not load the schedule.\n"
+                       + (error == null ? "" : error.getMessage()));
+    });
+
+    currentLoad = load;
+    loadingIndicator.visibleProperty().bind(load.runningProperty());
+    loadExecutor.execute(load);
+
+    logger.fine("Exiting MainStage.populateShiftViewTable()");
+  }
+
+  /**
+   * <p>
+   * Runs on the loader thread: gets the week of shifts (all-shifts view) or
+   * events (single-shift view) from <code>WeekGridCache</code>, building it
+   * only if it is not cached, and builds the table rows.  Does not touch
+   * <code>outputTable</code>.</p>
+   *
+   * @return the rows, or <code>null</code> if <code>load</code> was
+   *         cancelled part way
+   */
+  private static ObservableList<ObservableList<?>> loadShiftViewRows(
+      int shift, int workcenter, LocalDate today, Task<?> load) {
+    //  Superseded already: do not build a week nobody will see
+    if (load.isCancelled()) {
+      return null;
+    }
+
     // ===========================  Build  List  ==========================
-    PersonDAO personDao = new PersonDAO();
-//    ShiftDateDAO shiftDateDao = new ShiftDateDAO();
-    people = personDao.getPeopleArrayListByShift(shift, workcenter);
+    WeekGridCache.WeekGrid grid = WeekGridCache.get(workcenter, shift, today);
+    List<Person> people = grid.getPeople();
 
     //  DEBUG:
     logger.fine("[MainStage.rebuildTable()] people = " + people + "\n");
-    
+
+    if (load.isCancelled()) {
+      return null;
+    }
+
+    Map<Integer, String> workcenterMap = new WorkcenterDAO().getMap();
+
     //  All-Shifts View:
     if (shift < 1) {
-      
-      // =============================  Columns  ============================
-      //      =========================  Name  =========================
-    outputTable.getColumns().add(createColumn(0, "Name"));
-    
-    //      ======================  Workcenter  ======================
-    //  If 'Shift' is set to 'All', add a 'Workcenter' column
-    if (workcenter < 1) {
-      outputTable.getColumns().add(createColumn(1, "Workcenter"));
-      columnOffset++;
-    }
-    
-      ObservableList<ObservableList<StringProperty>> data =
+      ObservableList<ObservableList<?>> data =
             FXCollections.observableArrayList();
 
-      //      ========================  Shifts  ========================
-      LocalDate currentDate;
-      String dateString;
-      for (int x = 0; x < 7; x++) {
-        currentDate = today.plusDays(x);
-        dateString = currentDate.format(dateFormatter);
-        outputTable.getColumns()
-            .add(createColumn(x + columnOffset, dateString));
-      }
-
       //      ========================  People  ========================
-      for (Person p : people) {
-        //  TODO: Change the current ShiftDateDAO.getWeek() to getWeekShifts(), and then add getWeekEvents()
-        ArrayList<String> shifts =
-            new ShiftDateDAO().getWeek(p, LocalDate.now());
-
-        //  DEBUG:
-        logger.fine("[MainStage.rebuildTable()] shifts = " + shifts);
+      for (int r = 0; r < people.size(); r++) {
+        Person p = people.get(r);
 
         ObservableList<StringProperty> row =
             FXCollections.observableArrayList();
-        for (String s : shifts) {
-          row.add(new SimpleStringProperty(s));
+        for (int day = 0; day < WeekGridCache.DAYS; day++) {
+          row.add(new SimpleStringProperty(grid.getShift(r, day)));
         }
 
         String personName = p.getRank() + " "
@@ -496,55 +682,31 @@ public class MainStage {
 
         //  If 'Workcenter' is set to 'All', add a 'Workcenter' column
         if (workcenter < 1) {
-          int workcenterId = p.getWorkcenterID();
-          String workcenterName =
-              new WorkcenterDAO().getMap().get(workcenterId);
+          String workcenterName = workcenterMap.get(p.getWorkcenterID());
           row.add(1, new SimpleStringProperty(workcenterName));
         }
 
         data.add(row);
       }
-      outputTable.setItems(data);
-      
-      
+      return data;
+
     } else {  //  Individual Shift View:
-      
-    // =============================  Columns  ============================
-    //      =========================  Name  =========================
-    outputTable.getColumns().add(createEventColumn(0, "Name"));
-    
-    //      ======================  Workcenter  ======================
-    //  If 'Shift' is set to 'All', add a 'Workcenter' column
-    if (workcenter < 1) {
-      outputTable.getColumns().add(createEventColumn(1, "Workcenter"));
-      columnOffset++;
-    }
-      
-      ObservableList<ObservableList<ObservableList<StringProperty>>> data =
+      ObservableList<ObservableList<?>> data =
             FXCollections.observableArrayList();
-      
+
       //      ========================  Events  ========================
-      LocalDate currentDate;
-      String dateString;
-      for (int x = 0; x < 7; x++) {
-        currentDate = today.plusDays(x);
-        dateString = currentDate.format(dateFormatter);
-        outputTable.getColumns()
-            .add(createEventColumn(x + columnOffset, dateString));
-      }
-      
-      for (Person p : people) {
-        //  TODO: Change the current ShiftDateDAO.getWeek() to getWeekShifts(), and then add getWeekEvents()
-        ObservableList<ObservableList<StringProperty>> events =
-            new PersonEventDAO().getWeekEvents(p, LocalDate.now());
-        
-        //  DEBUG:
-        logger.fine("[MainStage.rebuildTable()] events = " + events);
+      for (int r = 0; r < people.size(); r++) {
+        Person p = people.get(r);
 
         ObservableList<ObservableList<StringProperty>> row = FXCollections.observableArrayList();
         
-        for (ObservableList<StringProperty> eventArrayList : events) {
-          row.add(eventArrayList);
+        for (int day = 0; day < WeekGridCache.DAYS; day++) {
+          ObservableList<StringProperty> events =
+              FXCollections.observableArrayList();
+          for (String event : grid.getEvents(r, day)) {
+            events.add(new SimpleStringProperty(event));
+          }
+          row.add(events);
         }
 
         String personName = p.getRank() + " "
@@ -560,8 +722,7 @@ public class MainStage {
 
         // If 'Shift' is set to 'All', add a 'Workcenter' column
         if (workcenter < 1) {
-          int workcenterId = p.getWorkcenterID();
-          String workcenterName = new WorkcenterDAO().getMap().get(workcenterId);
+          String workcenterName = workcenterMap.get(p.getWorkcenterID());
           
           SimpleStringProperty workcenterNameProperty =
             new SimpleStringProperty(workcenterName);
@@ -571,13 +732,53 @@ public class MainStage {
           logger.fine("workcenterNameList = " + workcenterNameList);
           row.add(1, workcenterNameList);
         } 
-//
+
         data.add(row);
       }
-      outputTable.setItems(data);
+      return data;
     }
+  }
 
-    logger.fine("Exiting MainStage.populateShiftViewTable()");
+  /**
+   * <p>
+   * Runs on the JavaFX thread: rebuilds the columns for the given filters
+   * and puts <code>rows</code> into <code>outputTable</code>.</p>
+   */
+  private void showShiftView(int shift, int workcenter, LocalDate today,
+                             ObservableList<ObservableList<?>> rows) {
+    DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("d MMM uuuu");
+    ArrayList<TableColumn<ObservableList<?>, String>> columns =
+        new ArrayList<>();
+    int columnOffset = 1;  // this is the index of the first date column
+
+    // =============================  Columns  ============================
+    //      =========================  Name  =========================
+    //      ======================  Workcenter  ======================
+    //  If 'Workcenter' is set to 'All', add a 'Workcenter' column
+    if (shift < 1) {
+      columns.add(createColumn(0, "Name"));
+      if (workcenter < 1) {
+        columns.add(createColumn(1, "Workcenter"));
+        columnOffset++;
+      }
+    } else {
+      columns.add(createEventColumn(0, "Name"));
+      if (workcenter < 1) {
+        columns.add(createEventColumn(1, "Workcenter"));
+        columnOffset++;
+      }
+    }
+
+    //      ====================  Shifts / Events  ===================
+    for (int x = 0; x < 7; x++) {
+      String dateString = today.plusDays(x).format(dateFormatter);
+      columns.add(shift < 1
+                  ? createColumn(x + columnOffset, dateString)
+                  : createEventColumn(x + columnOffset, dateString));
+    }
+
+    outputTable.getColumns().setAll(columns);
+    outputTable.setItems(rows);
   }
   
   /**
@@ -585,7 +786,7 @@ public class MainStage {
    * <code>CSS</code> style, and selection mode.<p>
    */
   private void buildShiftViewTable() {
-    outputTable = new TableView();
+    outputTable = new TableView<>();
     logger.fine("outputTable has been set");
     int width = 500;
     int height = 500;
@@ -605,6 +806,10 @@ public class MainStage {
 //        });
     outputTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
     outputTable.setId("schedule_table");
+
+    loadingIndicator = new ProgressIndicator();
+    loadingIndicator.setMaxSize(60, 60);
+    loadingIndicator.setVisible(false);
   }
     
   // =============================   Misc  ==============================